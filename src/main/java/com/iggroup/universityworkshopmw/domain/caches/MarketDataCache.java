@@ -3,24 +3,47 @@ package com.iggroup.universityworkshopmw.domain.caches;
 import com.iggroup.universityworkshopmw.domain.enums.MarketName;
 import com.iggroup.universityworkshopmw.domain.exceptions.NoMarketPriceAvailableException;
 import com.iggroup.universityworkshopmw.domain.model.Market;
+import com.iggroup.universityworkshopmw.domain.model.MarketDataSnapshot;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.stream.IntStream;
 
+import static java.util.Collections.unmodifiableList;
+
 @Slf4j
 @Component
 public class MarketDataCache {
 
-   private Map<String, Market> marketIdToMarketModelMap = new ConcurrentHashMap<>();
-   private final String ID_PREFIX = "market_";
+   private static final String ID_PREFIX = "market_";
+   private static final double SYNTHETIC_STARTING_PRICE = 250.0;
+
+   private final Map<String, Market> marketIdToMarketModelMap = new ConcurrentHashMap<>();
+   // Prices indexed by MarketName ordinal, then by synthetic market number, stored as raw double bits
+   private final AtomicLongArray marketPrices;
+   private final String[] marketIds;
+   // Readers take whichever snapshot is current, so they never see markets from two different ticks
+   private volatile MarketDataSnapshot snapshot;
 
    public MarketDataCache() {
+      this(0);
+   }
+
+   @Autowired
+   public MarketDataCache(@Value("${marketData.syntheticMarkets:0}") int syntheticMarketCount) {
+      int marketCount = MarketName.values().length + syntheticMarketCount;
+      marketPrices = new AtomicLongArray(marketCount);
+      marketIds = new String[marketCount];
       initialiseMarketModelMap();
+      initialiseSyntheticMarkets();
+      snapshot = new MarketDataSnapshot(0, unmodifiableList(new ArrayList<>(marketIdToMarketModelMap.values())));
    }
 
    private void initialiseMarketModelMap() {
@@ -30,6 +53,8 @@ public class MarketDataCache {
                MarketName marketName = MarketName.values()[idx];
                Double startingPrice = marketName.getStartingPrice();
 
+               marketIds[idx] = marketId;
+               marketPrices.set(idx, Double.doubleToRawLongBits(startingPrice));
                marketIdToMarketModelMap.put(marketId, Market.builder()
                      .id(marketId)
                      .marketName(marketName)
@@ -38,8 +63,13 @@ public class MarketDataCache {
             });
    }
 
-   public void put(String id, Market market) {
-      marketIdToMarketModelMap.put(id, market);
+   // Synthetic markets only have a price, so they can be traded and load tested but are not listed as markets
+   private void initialiseSyntheticMarkets() {
+      IntStream.range(MarketName.values().length, marketIds.length)
+            .forEach(idx -> {
+               marketIds[idx] = ID_PREFIX + (idx + 1);
+               marketPrices.set(idx, Double.doubleToRawLongBits(SYNTHETIC_STARTING_PRICE));
+            });
    }
 
    public boolean containsKey(String marketId) {
@@ -47,25 +77,93 @@ public class MarketDataCache {
    }
 
    public Market get(String marketId) {
-      return marketIdToMarketModelMap.get(marketId);
+      Market market = marketIdToMarketModelMap.get(marketId);
+      int marketIndex = indexOf(marketId);
+      return market == null || marketIndex < 0 ? market : withCurrentPrice(market, marketIndex);
+   }
+
+   public MarketDataSnapshot getSnapshot() {
+      return snapshot;
+   }
+
+   // Captures the prices written since the last snapshot. Markets whose price has not moved are carried over as they are
+   public synchronized MarketDataSnapshot publishSnapshot() {
+      List<Market> previousMarkets = snapshot.getMarkets();
+      List<Market> markets = new ArrayList<>(previousMarkets.size());
+      for (Market market : previousMarkets) {
+         int marketIndex = indexOf(market.getId());
+         markets.add(marketIndex < 0 ? market : withCurrentPrice(market, marketIndex));
+      }
+      snapshot = new MarketDataSnapshot(snapshot.getVersion() + 1, unmodifiableList(markets));
+      return snapshot;
+   }
+
+   public int size() {
+      return marketIds.length;
+   }
+
+   public boolean isSyntheticMarket(int marketIndex) {
+      return marketIndex >= MarketName.values().length;
+   }
+
+   public int indexOf(String marketId) {
+      int marketIndex = parseMarketIndex(marketId);
+      return marketIndex < marketIds.length ? marketIndex : -1;
    }
 
-   public Collection<Market> values() {
-      return marketIdToMarketModelMap.values();
+   public String getMarketId(int marketIndex) {
+      return marketIds[marketIndex];
    }
 
-   public Set<Map.Entry<String, Market>> entrySet() {
-      return marketIdToMarketModelMap.entrySet();
+   public double getCurrentPrice(int marketIndex) {
+      return Double.longBitsToDouble(marketPrices.get(marketIndex));
+   }
+
+   public void updateCurrentPrice(int marketIndex, double currentPrice) {
+      marketPrices.set(marketIndex, Double.doubleToRawLongBits(currentPrice));
    }
 
    public double getCurrentPriceForMarket(String marketId) throws NoMarketPriceAvailableException {
-      Market market = null;
-      if (marketIdToMarketModelMap.containsKey(marketId)) {
-         market = marketIdToMarketModelMap.get(marketId);
+      int marketIndex = indexOf(marketId);
+      if (marketIndex >= 0) {
+         return getCurrentPrice(marketIndex);
       }
+
+      Market market = marketIdToMarketModelMap.get(marketId);
       return market == null ? throwException(marketId) : market.getCurrentPrice();
    }
 
+   private Market withCurrentPrice(Market market, int marketIndex) {
+      double currentPrice = getCurrentPrice(marketIndex);
+      if (market.getCurrentPrice() == currentPrice) {
+         return market;
+      }
+      return Market.builder()
+            .id(market.getId())
+            .marketName(market.getMarketName())
+            .currentPrice(currentPrice)
+            .build();
+   }
+
+   // Resolves "market_N" to N - 1 without allocating, or -1 for any other id
+   private static int parseMarketIndex(String marketId) {
+      int prefixLength = ID_PREFIX.length();
+      if (marketId == null || marketId.length() == prefixLength || marketId.length() > prefixLength + 9
+            || !marketId.startsWith(ID_PREFIX) || marketId.charAt(prefixLength) == '0') {
+         return -1;
+      }
+
+      int marketNumber = 0;
+      for (int i = prefixLength; i < marketId.length(); i++) {
+         char digit = marketId.charAt(i);
+         if (digit < '0' || digit > '9') {
+            return -1;
+         }
+         marketNumber = marketNumber * 10 + (digit - '0');
+      }
+      return marketNumber - 1;
+   }
+
    private double throwException(String marketId) throws NoMarketPriceAvailableException {
       log.error("Could not get current price for marketId={}", marketId);
       throw new NoMarketPriceAvailableException("Could not get current price for marketId=" + marketId);
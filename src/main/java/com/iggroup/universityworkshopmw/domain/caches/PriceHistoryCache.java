@@ -0,0 +1,174 @@
+package com.iggroup.universityworkshopmw.domain.caches;
+
+import com.iggroup.universityworkshopmw.domain.enums.BarResolution;
+import com.iggroup.universityworkshopmw.domain.enums.MarketName;
+import com.iggroup.universityworkshopmw.domain.exceptions.NoAvailableDataException;
+import com.iggroup.universityworkshopmw.domain.model.PriceBar;
+import com.iggroup.universityworkshopmw.domain.model.PriceTick;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps the most recent ticks and OHLC bars for each named market in fixed size primitive rings.
+// Recording a tick only writes into preallocated arrays, so the price generator never allocates for history
+@Slf4j
+@Component
+public class PriceHistoryCache {
+
+   private final MarketDataCache marketDataCache;
+   private final MarketHistory[] marketHistories;
+
+   @Autowired
+   public PriceHistoryCache(MarketDataCache marketDataCache,
+                            @Value("${priceHistory.tickCapacity:4096}") int tickCapacity,
+                            @Value("${priceHistory.barCapacity:1440}") int barCapacity) {
+      this.marketDataCache = marketDataCache;
+      this.marketHistories = new MarketHistory[MarketName.values().length];
+      for (int marketIndex = 0; marketIndex < marketHistories.length; marketIndex++) {
+         marketHistories[marketIndex] = new MarketHistory(tickCapacity, barCapacity);
+      }
+   }
+
+   // Synthetic markets are not listed, so they have no history
+   public void recordTick(int marketIndex, long timestamp, double price) {
+      if (marketIndex < marketHistories.length) {
+         marketHistories[marketIndex].record(timestamp, price);
+      }
+   }
+
+   public List<PriceTick> getTicks(String marketId, long from, long to) throws NoAvailableDataException {
+      return getMarketHistory(marketId).getTicks(from, to);
+   }
+
+   public List<PriceBar> getBars(String marketId, BarResolution resolution, long from, long to) throws NoAvailableDataException {
+      return getMarketHistory(marketId).getBars(resolution, from, to);
+   }
+
+   private MarketHistory getMarketHistory(String marketId) throws NoAvailableDataException {
+      int marketIndex = marketDataCache.indexOf(marketId);
+      if (marketIndex < 0 || marketIndex >= marketHistories.length) {
+         log.info("No price history for marketId={}", marketId);
+         throw new NoAvailableDataException("No price history for marketId=" + marketId);
+      }
+      return marketHistories[marketIndex];
+   }
+
+   // Each market is written by one price generator partition, and reads copy out under the same monitor
+   private static class MarketHistory {
+      private final long[] tickTimestamps;
+      private final double[] tickPrices;
+      private long tickCount;
+      private final BarRing[] barRings;
+
+      private MarketHistory(int tickCapacity, int barCapacity) {
+         tickTimestamps = new long[tickCapacity];
+         tickPrices = new double[tickCapacity];
+         barRings = new BarRing[BarResolution.values().length];
+         for (BarResolution resolution : BarResolution.values()) {
+            barRings[resolution.ordinal()] = new BarRing(resolution, barCapacity);
+         }
+      }
+
+      private synchronized void record(long timestamp, double price) {
+         int slot = (int) (tickCount++ % tickTimestamps.length);
+         tickTimestamps[slot] = timestamp;
+         tickPrices[slot] = price;
+         for (BarRing barRing : barRings) {
+            barRing.record(timestamp, price);
+         }
+      }
+
+      private synchronized List<PriceTick> getTicks(long from, long to) {
+         List<PriceTick> ticks = new ArrayList<>();
+         for (long sequence = Math.max(0, tickCount - tickTimestamps.length); sequence < tickCount; sequence++) {
+            int slot = (int) (sequence % tickTimestamps.length);
+            long timestamp = tickTimestamps[slot];
+            if (timestamp >= to) {
+               break;
+            }
+            if (timestamp >= from) {
+               ticks.add(PriceTick.builder()
+                     .timestamp(timestamp)
+                     .price(tickPrices[slot])
+                     .build());
+            }
+         }
+         return ticks;
+      }
+
+      private synchronized List<PriceBar> getBars(BarResolution resolution, long from, long to) {
+         return barRings[resolution.ordinal()].getBars(from, to);
+      }
+   }
+
+   // Bars are built incrementally: a tick either extends the newest bar or starts the next one
+   private static class BarRing {
+      private final BarResolution resolution;
+      private final long[] startTimes;
+      private final double[] opens;
+      private final double[] highs;
+      private final double[] lows;
+      private final double[] closes;
+      private final int[] tickCounts;
+      private long barCount;
+
+      private BarRing(BarResolution resolution, int capacity) {
+         this.resolution = resolution;
+         startTimes = new long[capacity];
+         opens = new double[capacity];
+         highs = new double[capacity];
+         lows = new double[capacity];
+         closes = new double[capacity];
+         tickCounts = new int[capacity];
+      }
+
+      private void record(long timestamp, double price) {
+         long startTime = resolution.bucketStart(timestamp);
+         if (barCount > 0) {
+            int slot = (int) ((barCount - 1) % startTimes.length);
+            // A tick stamped before the newest bar is folded into it rather than rewriting closed bars
+            if (startTime <= startTimes[slot]) {
+               highs[slot] = Math.max(highs[slot], price);
+               lows[slot] = Math.min(lows[slot], price);
+               closes[slot] = price;
+               tickCounts[slot]++;
+               return;
+            }
+         }
+
+         int slot = (int) (barCount++ % startTimes.length);
+         startTimes[slot] = startTime;
+         opens[slot] = price;
+         highs[slot] = price;
+         lows[slot] = price;
+         closes[slot] = price;
+         tickCounts[slot] = 1;
+      }
+
+      private List<PriceBar> getBars(long from, long to) {
+         List<PriceBar> bars = new ArrayList<>();
+         for (long sequence = Math.max(0, barCount - startTimes.length); sequence < barCount; sequence++) {
+            int slot = (int) (sequence % startTimes.length);
+            long startTime = startTimes[slot];
+            if (startTime >= to) {
+               break;
+            }
+            if (startTime + resolution.getMillis() > from) {
+               bars.add(PriceBar.builder()
+                     .startTime(startTime)
+                     .open(opens[slot])
+                     .high(highs[slot])
+                     .low(lows[slot])
+                     .close(closes[slot])
+                     .tickCount(tickCounts[slot])
+                     .build());
+            }
+         }
+         return bars;
+      }
+   }
+}
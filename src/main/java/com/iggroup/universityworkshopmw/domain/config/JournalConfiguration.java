@@ -0,0 +1,16 @@
+package com.iggroup.universityworkshopmw.domain.config;
+
+import com.iggroup.universityworkshopmw.domain.journal.StateJournal;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JournalConfiguration {
+
+   @Bean
+   @ConditionalOnProperty(name = "journal.enabled", havingValue = "false", matchIfMissing = true)
+   public StateJournal stateJournal() {
+      return StateJournal.NO_OP;
+   }
+}
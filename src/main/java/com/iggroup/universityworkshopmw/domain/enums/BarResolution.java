@@ -0,0 +1,19 @@
+package com.iggroup.universityworkshopmw.domain.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum BarResolution {
+
+   ONE_SECOND(1_000L),
+   ONE_MINUTE(60_000L),
+   FIVE_MINUTES(300_000L);
+
+   private final long millis;
+
+   public long bucketStart(long timestamp) {
+      return timestamp - Math.floorMod(timestamp, millis);
+   }
+}
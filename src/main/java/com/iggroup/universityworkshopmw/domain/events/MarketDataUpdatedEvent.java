@@ -0,0 +1,15 @@
+package com.iggroup.universityworkshopmw.domain.events;
+
+import com.iggroup.universityworkshopmw.domain.model.Market;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.List;
+
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class MarketDataUpdatedEvent {
+   private final List<Market> updatedMarkets;
+}
@@ -1,9 +1,37 @@
 package com.iggroup.universityworkshopmw.domain.helpers;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class Helper {
 
+   // Ids are the current millisecond shifted left by SEQUENCE_BITS, plus a sequence within that millisecond
+   private static final int SEQUENCE_BITS = 16;
+   private static final AtomicLong lastUniqueId = new AtomicLong();
+
    public static String createUniqueId(String prefix) {
-      return prefix + System.currentTimeMillis();
+      return prefix + Long.toString(nextUniqueIds(1), Character.MAX_RADIX);
+   }
+
+   public static List<String> createUniqueIds(String prefix, int count) {
+      long firstId = nextUniqueIds(count);
+      List<String> ids = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+         ids.add(prefix + Long.toString(firstId + i, Character.MAX_RADIX));
+      }
+      return ids;
+   }
+
+   // Reserves a contiguous block of count ids, unique and increasing across threads, and returns the first
+   public static long nextUniqueIds(int count) {
+      long lastId;
+      long firstId;
+      do {
+         lastId = lastUniqueId.get();
+         firstId = Math.max(lastId + 1, System.currentTimeMillis() << SEQUENCE_BITS);
+      } while (!lastUniqueId.compareAndSet(lastId, firstId + count - 1));
+      return firstId;
    }
 
    public static double roundToTwoDecimalPlaces(double value) {
@@ -0,0 +1,121 @@
+package com.iggroup.universityworkshopmw.domain.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+// Journal and snapshot files are a sequence of frames: an int payload length followed by the payload. A zero length,
+// which is also what an unwritten region of a segment reads as, ends the file
+class JournalCodec {
+
+   static final int FRAME_HEADER_BYTES = Integer.BYTES;
+   private static final int MAX_STRING_BYTES = 0xFFFF;
+   static final int MAX_RECORD_BYTES = 1 + 3 * (Short.BYTES + MAX_STRING_BYTES) + Integer.BYTES + 2 * Double.BYTES;
+   private static final JournalRecord.Type[] TYPES = JournalRecord.Type.values();
+
+   static void encode(JournalRecord record, ByteBuffer buffer) {
+      buffer.put((byte) record.getType().ordinal());
+      putString(buffer, record.getClientId());
+
+      switch (record.getType()) {
+         case CLIENT_CREATED:
+            putString(buffer, record.getUserName());
+            buffer.putDouble(record.getAvailableFunds());
+            buffer.putDouble(record.getRunningProfitAndLoss());
+            break;
+         case FUNDS_UPDATED:
+            buffer.putDouble(record.getAvailableFunds());
+            buffer.putDouble(record.getRunningProfitAndLoss());
+            break;
+         case POSITION_OPENED:
+            putString(buffer, record.getOpenPositionId());
+            putString(buffer, record.getMarketId());
+            buffer.putInt(record.getBuySize());
+            buffer.putDouble(record.getOpeningPrice());
+            break;
+         case POSITION_CLOSED:
+            putString(buffer, record.getOpenPositionId());
+            break;
+      }
+   }
+
+   static JournalRecord decode(ByteBuffer buffer) {
+      JournalRecord.Type type = TYPES[buffer.get()];
+      JournalRecord.JournalRecordBuilder builder = JournalRecord.builder()
+            .type(type)
+            .clientId(getString(buffer));
+
+      switch (type) {
+         case CLIENT_CREATED:
+            builder.userName(getString(buffer))
+                  .availableFunds(buffer.getDouble())
+                  .runningProfitAndLoss(buffer.getDouble());
+            break;
+         case FUNDS_UPDATED:
+            builder.availableFunds(buffer.getDouble())
+                  .runningProfitAndLoss(buffer.getDouble());
+            break;
+         case POSITION_OPENED:
+            builder.openPositionId(getString(buffer))
+                  .marketId(getString(buffer))
+                  .buySize(buffer.getInt())
+                  .openingPrice(buffer.getDouble());
+            break;
+         case POSITION_CLOSED:
+            builder.openPositionId(getString(buffer));
+            break;
+      }
+      return builder.build();
+   }
+
+   static void readFrames(Path file, Consumer<JournalRecord> consumer) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, READ)) {
+         MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+         while (buffer.remaining() >= FRAME_HEADER_BYTES) {
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+               break;
+            }
+            int nextFrame = buffer.position() + length;
+            ByteBuffer payload = buffer.slice();
+            payload.limit(length);
+            consumer.accept(decode(payload));
+            buffer.position(nextFrame);
+         }
+      }
+   }
+
+   // Position just after the last complete frame in the buffer
+   static int endOfFrames(ByteBuffer buffer) {
+      int position = 0;
+      while (buffer.limit() - position >= FRAME_HEADER_BYTES) {
+         int length = buffer.getInt(position);
+         if (length <= 0 || length > buffer.limit() - position - FRAME_HEADER_BYTES) {
+            break;
+         }
+         position += FRAME_HEADER_BYTES + length;
+      }
+      return position;
+   }
+
+   private static void putString(ByteBuffer buffer, String value) {
+      byte[] bytes = value.getBytes(UTF_8);
+      if (bytes.length > MAX_STRING_BYTES) {
+         throw new IllegalArgumentException("Cannot journal a value longer than " + MAX_STRING_BYTES + " bytes");
+      }
+      buffer.putShort((short) bytes.length);
+      buffer.put(bytes);
+   }
+
+   private static String getString(ByteBuffer buffer) {
+      byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+      buffer.get(bytes);
+      return new String(bytes, UTF_8);
+   }
+}
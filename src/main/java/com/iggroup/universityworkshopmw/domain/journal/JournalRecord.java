@@ -0,0 +1,69 @@
+package com.iggroup.universityworkshopmw.domain.journal;
+
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+@Builder
+public class JournalRecord {
+   private final Type type;
+   private final String clientId;
+   private final String userName;
+   private final double availableFunds;
+   private final double runningProfitAndLoss;
+   private final String openPositionId;
+   private final String marketId;
+   private final int buySize;
+   private final double openingPrice;
+
+   public enum Type {
+      CLIENT_CREATED,
+      FUNDS_UPDATED,
+      POSITION_OPENED,
+      POSITION_CLOSED
+   }
+
+   static JournalRecord clientCreated(Client client) {
+      return JournalRecord.builder()
+            .type(Type.CLIENT_CREATED)
+            .clientId(client.getId())
+            .userName(client.getUserName())
+            .availableFunds(client.getAvailableFunds())
+            .runningProfitAndLoss(client.getRunningProfitAndLoss())
+            .build();
+   }
+
+   static JournalRecord fundsUpdated(String clientId, double availableFunds, double runningProfitAndLoss) {
+      return JournalRecord.builder()
+            .type(Type.FUNDS_UPDATED)
+            .clientId(clientId)
+            .availableFunds(availableFunds)
+            .runningProfitAndLoss(runningProfitAndLoss)
+            .build();
+   }
+
+   static JournalRecord positionOpened(String clientId, OpenPosition openPosition) {
+      return JournalRecord.builder()
+            .type(Type.POSITION_OPENED)
+            .clientId(clientId)
+            .openPositionId(openPosition.getId())
+            .marketId(openPosition.getMarketId())
+            .buySize(openPosition.getBuySize())
+            .openingPrice(openPosition.getOpeningPrice())
+            .build();
+   }
+
+   static JournalRecord positionClosed(String clientId, String openPositionId) {
+      return JournalRecord.builder()
+            .type(Type.POSITION_CLOSED)
+            .clientId(clientId)
+            .openPositionId(openPositionId)
+            .build();
+   }
+}
@@ -0,0 +1,252 @@
+package com.iggroup.universityworkshopmw.domain.journal;
+
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+// Request threads only enqueue records. A single writer thread appends everything queued so far to a memory-mapped
+// segment and forces it to disk once per batch, so one fsync commits a whole group of requests.
+// Requests do not wait for that fsync, so a change is acknowledged while its record may still be queued or unforced. A
+// crash loses the changes acknowledged in roughly the last POLL_MILLIS plus one fsync; recovery replays everything
+// before them in order.
+// If a batch cannot be written the journal fails: the writer stops and checkRecording rejects every later change, rather
+// than carrying on with a gap in the journal that recovery would silently replay past. Records of changes that were
+// checked just before the failure are dropped, the same as if they had been queued before a crash
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "journal.enabled", havingValue = "true")
+public class MappedStateJournal implements StateJournal {
+
+   static final String SEGMENT_PREFIX = "journal-";
+   static final String SEGMENT_SUFFIX = ".log";
+   private static final int MAX_BATCH_SIZE = 4096;
+   private static final long POLL_MILLIS = 10;
+
+   private final Path directory;
+   private final int segmentSizeBytes;
+   private final BlockingQueue<JournalRecord> pendingRecords = new LinkedBlockingQueue<>();
+   private final AtomicReference<CompletableFuture<Long>> rollRequest = new AtomicReference<>();
+   private final ByteBuffer recordBuffer = ByteBuffer.allocate(JournalCodec.MAX_RECORD_BYTES);
+   private final Thread writerThread;
+   private volatile boolean running = true;
+   private volatile Exception failure;
+
+   private long segmentNumber;
+   private FileChannel segmentChannel;
+   private MappedByteBuffer segment;
+
+   public MappedStateJournal(@Value("${journal.directory:journal}") String directory,
+                             @Value("${journal.segmentSizeBytes:67108864}") int segmentSizeBytes) throws IOException {
+      this.directory = Files.createDirectories(Paths.get(directory));
+      this.segmentSizeBytes = segmentSizeBytes;
+
+      NavigableMap<Long, Path> existingSegments = listFiles(this.directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+      if (existingSegments.isEmpty()) {
+         openSegment(0);
+      } else {
+         reopenSegment(existingSegments.lastEntry().getKey(), existingSegments.lastEntry().getValue());
+      }
+
+      writerThread = new Thread(this::writeLoop, "state-journal-writer");
+      writerThread.setDaemon(true);
+      writerThread.start();
+   }
+
+   @Override
+   public void checkRecording() {
+      if (failure != null) {
+         throw new IllegalStateException("State journal has failed, so changes can no longer be recorded", failure);
+      }
+   }
+
+   @Override
+   public void clientCreated(Client client) {
+      enqueue(JournalRecord.clientCreated(client));
+   }
+
+   @Override
+   public void fundsUpdated(String clientId, double availableFunds, double runningProfitAndLoss) {
+      enqueue(JournalRecord.fundsUpdated(clientId, availableFunds, runningProfitAndLoss));
+   }
+
+   @Override
+   public void positionOpened(String clientId, OpenPosition openPosition) {
+      enqueue(JournalRecord.positionOpened(clientId, openPosition));
+   }
+
+   @Override
+   public void positionClosed(String clientId, String openPositionId) {
+      enqueue(JournalRecord.positionClosed(clientId, openPositionId));
+   }
+
+   public Path getDirectory() {
+      return directory;
+   }
+
+   // Completes with the number of a fresh segment once every record written so far is in an earlier one
+   public CompletableFuture<Long> rollSegment() {
+      CompletableFuture<Long> rolled = new CompletableFuture<>();
+      if (failure != null) {
+         rolled.completeExceptionally(failure);
+         return rolled;
+      }
+      CompletableFuture<Long> alreadyRequested = rollRequest.getAndUpdate(pending -> pending == null ? rolled : pending);
+      return alreadyRequested == null ? rolled : alreadyRequested;
+   }
+
+   @PreDestroy
+   public void close() throws IOException, InterruptedException {
+      if (!running) {
+         return;
+      }
+      running = false;
+      writerThread.join();
+      if (failure == null) {
+         segment.force();
+      }
+      segmentChannel.close();
+   }
+
+   static NavigableMap<Long, Path> listFiles(Path directory, String prefix, String suffix) throws IOException {
+      NavigableMap<Long, Path> files = new TreeMap<>();
+      try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+         for (Path path : paths) {
+            String fileName = path.getFileName().toString();
+            files.put(Long.parseLong(fileName.substring(prefix.length(), fileName.length() - suffix.length())), path);
+         }
+      }
+      return files;
+   }
+
+   static String fileName(String prefix, long number, String suffix) {
+      return String.format("%s%020d%s", prefix, number, suffix);
+   }
+
+   private void writeLoop() {
+      List<JournalRecord> batch = new ArrayList<>(MAX_BATCH_SIZE);
+      while (running || !pendingRecords.isEmpty()) {
+         try {
+            JournalRecord first = pendingRecords.poll(POLL_MILLIS, MILLISECONDS);
+            if (first != null) {
+               batch.add(first);
+               pendingRecords.drainTo(batch, MAX_BATCH_SIZE - 1);
+               batch.forEach(this::append);
+               segment.force();
+               batch.clear();
+            }
+            completeRollRequest();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+         } catch (IOException | RuntimeException e) {
+            fail(e, batch.size());
+            return;
+         }
+      }
+   }
+
+   // Nothing is written once the journal has failed, so records are dropped rather than left to pile up in the queue
+   private void enqueue(JournalRecord record) {
+      if (failure == null) {
+         pendingRecords.add(record);
+      }
+   }
+
+   private void fail(Exception e, int batchSize) {
+      failure = e;
+      log.error("State journal failed writing a batch of {} records to segment={}, {} more records are queued. " +
+            "Rejecting all further changes", batchSize, segmentNumber, pendingRecords.size(), e);
+      CompletableFuture<Long> rolled = rollRequest.getAndSet(null);
+      if (rolled != null) {
+         rolled.completeExceptionally(e);
+      }
+   }
+
+   private void append(JournalRecord record) {
+      recordBuffer.clear();
+      JournalCodec.encode(record, recordBuffer);
+      recordBuffer.flip();
+
+      try {
+         if (segment.remaining() < JournalCodec.FRAME_HEADER_BYTES + recordBuffer.remaining()) {
+            openSegment(segmentNumber + 1);
+         }
+      } catch (IOException e) {
+         throw new IllegalStateException("Could not roll journal segment", e);
+      }
+
+      // The length goes in last, so a record torn by a crash reads as the end of the segment
+      int frameStart = segment.position();
+      segment.position(frameStart + JournalCodec.FRAME_HEADER_BYTES);
+      segment.put(recordBuffer);
+      segment.putInt(frameStart, recordBuffer.limit());
+   }
+
+   private void completeRollRequest() throws IOException {
+      CompletableFuture<Long> rolled = rollRequest.getAndSet(null);
+      if (rolled != null) {
+         try {
+            openSegment(segmentNumber + 1);
+            rolled.complete(segmentNumber);
+         } catch (IOException e) {
+            rolled.completeExceptionally(e);
+            throw e;
+         }
+      }
+   }
+
+   private void openSegment(long newSegmentNumber) throws IOException {
+      if (segmentChannel != null) {
+         segment.force();
+         segmentChannel.close();
+      }
+
+      Path segmentPath = directory.resolve(fileName(SEGMENT_PREFIX, newSegmentNumber, SEGMENT_SUFFIX));
+      segmentChannel = FileChannel.open(segmentPath, CREATE_NEW, READ, WRITE);
+      segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSizeBytes);
+      segmentNumber = newSegmentNumber;
+      log.info("Opened journal segment={}", segmentPath);
+   }
+
+   // Carries on writing after the last complete record of an existing segment, rather than starting a new one on
+   // every restart. Whatever a torn record left behind is cleared, so it cannot be read as frames after new ones
+   private void reopenSegment(long existingSegmentNumber, Path segmentPath) throws IOException {
+      segmentChannel = FileChannel.open(segmentPath, READ, WRITE);
+      segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentChannel.size(), segmentSizeBytes));
+      segmentNumber = existingSegmentNumber;
+
+      int end = JournalCodec.endOfFrames(segment);
+      int tornEnd = Math.min(segment.capacity(), end + JournalCodec.FRAME_HEADER_BYTES + JournalCodec.MAX_RECORD_BYTES);
+      for (int i = end; i < tornEnd; i++) {
+         segment.put(i, (byte) 0);
+      }
+      segment.position(end);
+      log.info("Reopened journal segment={} at position={}", segmentPath, end);
+   }
+}
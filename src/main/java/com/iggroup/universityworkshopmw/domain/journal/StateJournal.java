@@ -0,0 +1,28 @@
+package com.iggroup.universityworkshopmw.domain.journal;
+
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+
+// Receives every client and position mutation after it has been applied in memory. Callers check that changes are
+// still being recorded before applying any part of one, so appends must neither block nor throw
+public interface StateJournal {
+
+   StateJournal NO_OP = new StateJournal() {
+   };
+
+   // Throws IllegalStateException once changes can no longer be recorded
+   default void checkRecording() {
+   }
+
+   default void clientCreated(Client client) {
+   }
+
+   default void fundsUpdated(String clientId, double availableFunds, double runningProfitAndLoss) {
+   }
+
+   default void positionOpened(String clientId, OpenPosition openPosition) {
+   }
+
+   default void positionClosed(String clientId, String openPositionId) {
+   }
+}
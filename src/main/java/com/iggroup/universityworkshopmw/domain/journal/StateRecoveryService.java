@@ -0,0 +1,223 @@
+package com.iggroup.universityworkshopmw.domain.journal;
+
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import com.iggroup.universityworkshopmw.domain.services.ClientService;
+import com.iggroup.universityworkshopmw.domain.services.OpenPositionsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
+
+import static com.iggroup.universityworkshopmw.domain.helpers.Helper.roundToTwoDecimalPlaces;
+import static com.iggroup.universityworkshopmw.domain.journal.MappedStateJournal.SEGMENT_PREFIX;
+import static com.iggroup.universityworkshopmw.domain.journal.MappedStateJournal.SEGMENT_SUFFIX;
+import static com.iggroup.universityworkshopmw.domain.journal.MappedStateJournal.fileName;
+import static com.iggroup.universityworkshopmw.domain.journal.MappedStateJournal.listFiles;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+// A snapshot numbered N holds the state as of some moment after segment N was opened, so recovery loads it and
+// replays segments N onwards. Replay is idempotent, so records already reflected in the snapshot are harmless.
+// Snapshots wait for the journal to roll and then copy every client and position, so they run on their own thread
+// rather than on the scheduler thread that generates prices
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "journal.enabled", havingValue = "true")
+public class StateRecoveryService {
+
+   static final String SNAPSHOT_PREFIX = "snapshot-";
+   static final String SNAPSHOT_SUFFIX = ".snap";
+   private static final int SNAPSHOT_BUFFER_BYTES = 1 << 20;
+   private static final long ROLL_TIMEOUT_SECONDS = 10;
+
+   private final ClientService clientService;
+   private final OpenPositionsService openPositionsService;
+   private final MappedStateJournal journal;
+   private final long snapshotIntervalMillis;
+   private final ScheduledExecutorService snapshotExecutor = Executors.newSingleThreadScheduledExecutor(snapshotTask -> {
+      Thread snapshotThread = new Thread(snapshotTask, "state-snapshot");
+      snapshotThread.setDaemon(true);
+      return snapshotThread;
+   });
+
+   public StateRecoveryService(ClientService clientService,
+                               OpenPositionsService openPositionsService,
+                               MappedStateJournal journal,
+                               @Value("${journal.snapshotIntervalMillis:60000}") long snapshotIntervalMillis) {
+      this.clientService = clientService;
+      this.openPositionsService = openPositionsService;
+      this.journal = journal;
+      this.snapshotIntervalMillis = snapshotIntervalMillis;
+   }
+
+   @PostConstruct
+   public void start() throws IOException {
+      recover();
+      snapshotExecutor.scheduleAtFixedRate(this::scheduledSnapshot, snapshotIntervalMillis, snapshotIntervalMillis, MILLISECONDS);
+   }
+
+   @PreDestroy
+   public void stop() throws InterruptedException {
+      snapshotExecutor.shutdownNow();
+      snapshotExecutor.awaitTermination(ROLL_TIMEOUT_SECONDS, SECONDS);
+   }
+
+   // Prices are not journaled, so clients come back with their unrealised profit and loss taken out of their funds and
+   // positions come back at zero profit and loss, ready to be revalued from the next price update
+   public void recover() throws IOException {
+      long start = System.nanoTime();
+      Path directory = journal.getDirectory();
+      Map<String, Client> clients = new LinkedHashMap<>();
+      Map<String, Map<String, OpenPosition>> openPositions = new LinkedHashMap<>();
+
+      NavigableMap<Long, Path> snapshots = listFiles(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+      long firstSegment = 0;
+      if (!snapshots.isEmpty()) {
+         firstSegment = snapshots.lastKey();
+         JournalCodec.readFrames(snapshots.lastEntry().getValue(), record -> apply(record, clients, openPositions));
+      }
+      for (Path segment : listFiles(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX).tailMap(firstSegment, true).values()) {
+         JournalCodec.readFrames(segment, record -> apply(record, clients, openPositions));
+      }
+
+      List<Client> restoredClients = new ArrayList<>(clients.size());
+      clients.values().forEach(client -> restoredClients.add(Client.builder()
+            .id(client.getId())
+            .userName(client.getUserName())
+            .availableFunds(roundToTwoDecimalPlaces(client.getAvailableFunds() - client.getRunningProfitAndLoss()))
+            .runningProfitAndLoss(0)
+            .build()));
+      Map<String, List<OpenPosition>> restoredPositions = new LinkedHashMap<>();
+      openPositions.forEach((clientId, positions) -> restoredPositions.put(clientId, new ArrayList<>(positions.values())));
+      int restoredPositionCount = openPositions.values().stream().mapToInt(Map::size).sum();
+
+      clientService.restoreClients(restoredClients);
+      openPositionsService.restoreOpenPositions(restoredPositions);
+      log.info("Recovered {} clients and {} open positions from directory={} in {}ms",
+            restoredClients.size(), restoredPositionCount, directory, (System.nanoTime() - start) / 1_000_000);
+   }
+
+   public void snapshot() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+      long snapshotNumber = journal.rollSegment().get(ROLL_TIMEOUT_SECONDS, SECONDS);
+      Path directory = journal.getDirectory();
+      Path snapshotFile = directory.resolve(fileName(SNAPSHOT_PREFIX, snapshotNumber, SNAPSHOT_SUFFIX));
+      Path tempFile = directory.resolve(fileName(SNAPSHOT_PREFIX, snapshotNumber, ".tmp"));
+
+      List<Client> clients = clientService.getClientSnapshot();
+      Map<String, List<OpenPosition>> openPositions = openPositionsService.getOpenPositionSnapshot();
+      try (FileChannel channel = FileChannel.open(tempFile, CREATE, TRUNCATE_EXISTING, WRITE)) {
+         ByteBuffer buffer = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER_BYTES);
+         for (Client client : clients) {
+            writeFrame(channel, buffer, JournalRecord.clientCreated(client));
+         }
+         for (Map.Entry<String, List<OpenPosition>> clientPositions : openPositions.entrySet()) {
+            for (OpenPosition openPosition : clientPositions.getValue()) {
+               writeFrame(channel, buffer, JournalRecord.positionOpened(clientPositions.getKey(), openPosition));
+            }
+         }
+         flush(channel, buffer);
+         channel.force(true);
+      }
+      Files.move(tempFile, snapshotFile, ATOMIC_MOVE);
+
+      deleteBefore(listFiles(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX), snapshotNumber);
+      deleteBefore(listFiles(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX), snapshotNumber);
+      log.info("Wrote snapshot={} of {} clients", snapshotFile, clients.size());
+   }
+
+   // A failed snapshot is logged rather than thrown, as that would cancel every later one
+   private void scheduledSnapshot() {
+      try {
+         snapshot();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      } catch (Exception e) {
+         log.error("Could not write snapshot, exceptionMessage={}", e.getMessage(), e);
+      }
+   }
+
+   private void apply(JournalRecord record, Map<String, Client> clients, Map<String, Map<String, OpenPosition>> openPositions) {
+      switch (record.getType()) {
+         case CLIENT_CREATED:
+            clients.put(record.getClientId(), Client.builder()
+                  .id(record.getClientId())
+                  .userName(record.getUserName())
+                  .availableFunds(record.getAvailableFunds())
+                  .runningProfitAndLoss(record.getRunningProfitAndLoss())
+                  .build());
+            break;
+         case FUNDS_UPDATED:
+            Client client = clients.get(record.getClientId());
+            if (client != null) {
+               client.setAvailableFunds(record.getAvailableFunds());
+               client.setRunningProfitAndLoss(record.getRunningProfitAndLoss());
+            }
+            break;
+         case POSITION_OPENED:
+            openPositions.computeIfAbsent(record.getClientId(), clientId -> new LinkedHashMap<>())
+                  .put(record.getOpenPositionId(), OpenPosition.builder()
+                        .id(record.getOpenPositionId())
+                        .marketId(record.getMarketId())
+                        .buySize(record.getBuySize())
+                        .openingPrice(record.getOpeningPrice())
+                        .build());
+            break;
+         case POSITION_CLOSED:
+            Map<String, OpenPosition> clientPositions = openPositions.get(record.getClientId());
+            if (clientPositions != null) {
+               clientPositions.remove(record.getOpenPositionId());
+               if (clientPositions.isEmpty()) {
+                  openPositions.remove(record.getClientId());
+               }
+            }
+            break;
+      }
+   }
+
+   private void writeFrame(FileChannel channel, ByteBuffer buffer, JournalRecord record) throws IOException {
+      int frameStart = buffer.position();
+      if (buffer.remaining() < JournalCodec.FRAME_HEADER_BYTES + JournalCodec.MAX_RECORD_BYTES) {
+         flush(channel, buffer);
+         frameStart = 0;
+      }
+      buffer.position(frameStart + JournalCodec.FRAME_HEADER_BYTES);
+      JournalCodec.encode(record, buffer);
+      buffer.putInt(frameStart, buffer.position() - frameStart - JournalCodec.FRAME_HEADER_BYTES);
+   }
+
+   private void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+         channel.write(buffer);
+      }
+      buffer.clear();
+   }
+
+   private void deleteBefore(NavigableMap<Long, Path> files, long number) throws IOException {
+      for (Path file : files.headMap(number, false).values()) {
+         Files.delete(file);
+      }
+   }
+}
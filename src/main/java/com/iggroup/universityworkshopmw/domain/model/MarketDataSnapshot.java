@@ -0,0 +1,18 @@
+package com.iggroup.universityworkshopmw.domain.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.List;
+
+// Every market as of one price tick. The list is unmodifiable and never changes once published
+@Getter
+@ToString
+@EqualsAndHashCode
+@RequiredArgsConstructor
+public class MarketDataSnapshot {
+   private final long version;
+   private final List<Market> markets;
+}
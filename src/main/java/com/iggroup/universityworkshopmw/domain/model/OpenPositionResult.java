@@ -0,0 +1,21 @@
+package com.iggroup.universityworkshopmw.domain.model;
+
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+@Builder
+public class OpenPositionResult {
+   private String marketId;
+   private int buySize;
+   private OpenPosition openPosition;
+   private String error;
+
+   public boolean isOpened() {
+      return openPosition != null;
+   }
+}
@@ -0,0 +1,19 @@
+package com.iggroup.universityworkshopmw.domain.model;
+
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+@ToString
+@Getter
+@EqualsAndHashCode
+@Builder
+public class PriceBar {
+   private long startTime;
+   private double open;
+   private double high;
+   private double low;
+   private double close;
+   private int tickCount;
+}
@@ -0,0 +1,15 @@
+package com.iggroup.universityworkshopmw.domain.model;
+
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+@ToString
+@Getter
+@EqualsAndHashCode
+@Builder
+public class PriceTick {
+   private long timestamp;
+   private double price;
+}
@@ -0,0 +1,152 @@
+package com.iggroup.universityworkshopmw.domain.services;
+
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// One client's open positions held column by column, so repricing a market is a scan over primitive arrays that
+// updates profit and loss in place. OpenPosition objects are only built when positions leave the service.
+// Positions are found by id through an index of slots, and a removed position's slot is filled with the last one, so
+// closing is constant time but does not keep positions in the order they were opened.
+// Not thread safe: callers hold the client's lock
+class ClientPositionBook {
+
+   private static final int INITIAL_CAPACITY = 4;
+
+   private String[] ids;
+   private String[] marketIds;
+   // Index into the market data cache's price array, or -1 for markets it does not index
+   private int[] marketIndexes;
+   private int[] buySizes;
+   private double[] openingPrices;
+   private double[] profitAndLosses;
+   private final Map<String, Integer> idToSlot = new HashMap<>();
+   private int size;
+   // Funds taken from the client to open these positions
+   private double usedMargin;
+
+   ClientPositionBook() {
+      this(INITIAL_CAPACITY);
+   }
+
+   private ClientPositionBook(int capacity) {
+      ids = new String[capacity];
+      marketIds = new String[capacity];
+      marketIndexes = new int[capacity];
+      buySizes = new int[capacity];
+      openingPrices = new double[capacity];
+      profitAndLosses = new double[capacity];
+   }
+
+   int size() {
+      return size;
+   }
+
+   boolean isEmpty() {
+      return size == 0;
+   }
+
+   double getUsedMargin() {
+      return usedMargin;
+   }
+
+   void add(OpenPosition openPosition, int marketIndex) {
+      if (size == ids.length) {
+         grow();
+      }
+      ids[size] = openPosition.getId();
+      marketIds[size] = openPosition.getMarketId();
+      marketIndexes[size] = marketIndex;
+      buySizes[size] = openPosition.getBuySize();
+      openingPrices[size] = openPosition.getOpeningPrice();
+      profitAndLosses[size] = openPosition.getProfitAndLoss();
+      usedMargin += openPosition.getBuySize() * openPosition.getOpeningPrice();
+      idToSlot.put(openPosition.getId(), size);
+      size++;
+   }
+
+   int indexOf(String id) {
+      Integer slot = idToSlot.get(id);
+      return slot == null ? -1 : slot;
+   }
+
+   void remove(int slot) {
+      usedMargin -= buySizes[slot] * openingPrices[slot];
+      idToSlot.remove(ids[slot]);
+      size--;
+      if (slot != size) {
+         ids[slot] = ids[size];
+         marketIds[slot] = marketIds[size];
+         marketIndexes[slot] = marketIndexes[size];
+         buySizes[slot] = buySizes[size];
+         openingPrices[slot] = openingPrices[size];
+         profitAndLosses[slot] = profitAndLosses[size];
+         idToSlot.put(ids[slot], slot);
+      }
+      ids[size] = null;
+      marketIds[size] = null;
+      if (size == 0) {
+         usedMargin = 0;
+      }
+   }
+
+   String getMarketId(int slot) {
+      return marketIds[slot];
+   }
+
+   int getMarketIndex(int slot) {
+      return marketIndexes[slot];
+   }
+
+   // Returns the change in profit and loss for the position
+   double revalue(int slot, double currentPrice) {
+      double newProfitAndLoss = (currentPrice - openingPrices[slot]) * buySizes[slot];
+      double profitAndLossDelta = newProfitAndLoss - profitAndLosses[slot];
+      profitAndLosses[slot] = newProfitAndLoss;
+      return profitAndLossDelta;
+   }
+
+   // Reprices every position in the market, matching on the price index where the cache has one, and returns the
+   // total change in profit and loss
+   double revalueMarket(int marketIndex, String marketId, double currentPrice) {
+      double profitAndLossDelta = 0;
+      for (int slot = 0; slot < size; slot++) {
+         if (marketIndexes[slot] == marketIndex && (marketIndex >= 0 || marketIds[slot].equals(marketId))) {
+            profitAndLossDelta += revalue(slot, currentPrice);
+         }
+      }
+      return profitAndLossDelta;
+   }
+
+   OpenPosition get(int slot) {
+      return OpenPosition.builder()
+            .id(ids[slot])
+            .marketId(marketIds[slot])
+            .buySize(buySizes[slot])
+            .openingPrice(openingPrices[slot])
+            .profitAndLoss(profitAndLosses[slot])
+            .build();
+   }
+
+   List<OpenPosition> toList() {
+      List<OpenPosition> openPositions = new ArrayList<>(size);
+      for (int slot = 0; slot < size; slot++) {
+         openPositions.add(get(slot));
+      }
+      return openPositions;
+   }
+
+   private void grow() {
+      int capacity = ids.length * 2;
+      ids = Arrays.copyOf(ids, capacity);
+      marketIds = Arrays.copyOf(marketIds, capacity);
+      marketIndexes = Arrays.copyOf(marketIndexes, capacity);
+      buySizes = Arrays.copyOf(buySizes, capacity);
+      openingPrices = Arrays.copyOf(openingPrices, capacity);
+      profitAndLosses = Arrays.copyOf(profitAndLosses, capacity);
+   }
+}
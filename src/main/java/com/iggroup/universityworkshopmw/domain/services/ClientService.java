@@ -2,13 +2,22 @@ package com.iggroup.universityworkshopmw.domain.services;
 
 import com.iggroup.universityworkshopmw.domain.exceptions.DuplicatedDataException;
 import com.iggroup.universityworkshopmw.domain.exceptions.NoAvailableDataException;
+import com.iggroup.universityworkshopmw.domain.journal.StateJournal;
 import com.iggroup.universityworkshopmw.domain.model.Client;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
 
+import static com.iggroup.universityworkshopmw.domain.helpers.Helper.createUniqueId;
 import static com.iggroup.universityworkshopmw.domain.helpers.Helper.roundToTwoDecimalPlaces;
 
 @Slf4j
@@ -16,45 +25,157 @@ import static com.iggroup.universityworkshopmw.domain.helpers.Helper.roundToTwoD
 public class ClientService {
 
    private Map<String, Client> clientIdToClientModelMap = new ConcurrentHashMap<>();
+   private Map<String, String> usernameToClientId = new ConcurrentHashMap<>();
+   // Client ids in order, so the store can be walked a page at a time from any client onwards
+   private final NavigableSet<String> clientIds = new ConcurrentSkipListSet<>();
    private final String ID_PREFIX = "client_";
    public static final double INITIAL_FUNDS = 25000;
+   private final StateJournal stateJournal;
+   // Brings a client's profit and loss up to date before it is read, when positions are revalued lazily
+   private volatile Consumer<String> clientRevaluator = clientId -> {
+   };
+
+   public ClientService() {
+      this(StateJournal.NO_OP);
+   }
+
+   @Autowired
+   public ClientService(StateJournal stateJournal) {
+      this.stateJournal = stateJournal;
+   }
 
    public Client storeNewClient(Client client) throws DuplicatedDataException {
-      return Client.builder().build();
+      stateJournal.checkRecording();
+      Client newClient = Client.builder()
+            .id(createUniqueId(ID_PREFIX))
+            .userName(client.getUserName())
+            .availableFunds(INITIAL_FUNDS)
+            .runningProfitAndLoss(0)
+            .build();
+
+      if (usernameToClientId.putIfAbsent(newClient.getUserName(), newClient.getId()) != null) {
+         throw new DuplicatedDataException("A client already exists with userName=" + newClient.getUserName());
+      }
+      clientIdToClientModelMap.put(newClient.getId(), newClient);
+      clientIds.add(newClient.getId());
+      stateJournal.clientCreated(newClient);
+
+      log.info("Stored new client={}", newClient);
+      return newClient;
    }
 
    public Client getClientData(String clientId) throws NoAvailableDataException {
-      return Client.builder().build();
+      clientRevaluator.accept(clientId);
+      return getClientDataFromMap(clientId);
    }
 
    public Client getClientDataByUsername(String username) throws NoAvailableDataException {
-      return Client.builder().build();
+      String clientId = usernameToClientId.get(username);
+      if (clientId == null) {
+         throw new NoAvailableDataException("No available client data in usernameToClientId for username=" + username);
+      }
+      return getClientData(clientId);
    }
 
    public void updateAvailableFunds(String clientId, double updatedAvailableFunds) throws NoAvailableDataException {
+      stateJournal.checkRecording();
+      setAvailableFunds(clientId, updatedAvailableFunds);
+   }
+
+   // For changes that checked the journal before applying their first step, so a journal failure part way through
+   // cannot leave them half applied
+   void setAvailableFunds(String clientId, double updatedAvailableFunds) throws NoAvailableDataException {
+      Client client = clientIdToClientModelMap.computeIfPresent(clientId, (id, storedClient) -> {
+         storedClient.setAvailableFunds(updatedAvailableFunds);
+         stateJournal.fundsUpdated(id, updatedAvailableFunds, storedClient.getRunningProfitAndLoss());
+         return storedClient;
+      });
+
+      if (client == null) {
+         throw new NoAvailableDataException("No available client data in clientIdToClientModelMap for clientId=" + clientId);
+      }
+   }
+
+   // The highest client id, or null before any client is stored. Ids increase as clients are created, so every client
+   // stored after this is read has a higher id. Clients are never removed, so once there is a last id there always is
+   public String getLastClientId() {
+      return clientIds.isEmpty() ? null : clientIds.last();
+   }
+
+   // Copies up to limit clients in id order, starting after afterClientId or from the first client when it is null, and
+   // stopping at lastClientId. Each client is read while holding its map entry, like getClientSnapshot
+   public List<Client> getClientPage(String afterClientId, String lastClientId, int limit) {
+      if (afterClientId != null && afterClientId.compareTo(lastClientId) >= 0) {
+         return new ArrayList<>();
+      }
+      NavigableSet<String> pageClientIds = afterClientId == null
+            ? clientIds.headSet(lastClientId, true)
+            : clientIds.subSet(afterClientId, false, lastClientId, true);
+      List<Client> clients = new ArrayList<>(Math.min(limit, 1024));
+      for (String clientId : pageClientIds) {
+         if (clients.size() == limit) {
+            break;
+         }
+         clientRevaluator.accept(clientId);
+         copyClient(clientId, clients);
+      }
+      return clients;
+   }
+
+   // Copies each client while holding its map entry, so funds and running profit and loss are read as a pair
+   public List<Client> getClientSnapshot() {
+      List<Client> clients = new ArrayList<>(clientIdToClientModelMap.size());
+      clientIdToClientModelMap.keySet().forEach(clientId -> copyClient(clientId, clients));
+      return clients;
    }
 
-   public Map<String, Client> getAllClients() {
-      return clientIdToClientModelMap;
+   public void restoreClients(Collection<Client> clients) {
+      clients.forEach(client -> {
+         usernameToClientId.put(client.getUserName(), client.getId());
+         clientIdToClientModelMap.put(client.getId(), client);
+         clientIds.add(client.getId());
+      });
    }
 
-   void updateRunningProfitAndLoss(String clientId, double sumOfPositionProfitAndLoss) throws NoAvailableDataException {
-      Client client = getClientDataFromMap(clientId);
-      double oldProfitAndLoss = client.getRunningProfitAndLoss();
+   void setClientRevaluator(Consumer<String> clientRevaluator) {
+      this.clientRevaluator = clientRevaluator;
+   }
+
+   // Reads funds as they stand, without bringing a lazily revalued client up to date first
+   double getAvailableFunds(String clientId) throws NoAvailableDataException {
+      return getClientDataFromMap(clientId).getAvailableFunds();
+   }
+
+   void applyProfitAndLossDelta(String clientId, double profitAndLossDelta) throws NoAvailableDataException {
+      Client client = clientIdToClientModelMap.computeIfPresent(clientId, (id, storedClient) -> {
+         storedClient.setRunningProfitAndLoss(roundToTwoDecimalPlaces(storedClient.getRunningProfitAndLoss() + profitAndLossDelta));
+         storedClient.setAvailableFunds(roundToTwoDecimalPlaces(storedClient.getAvailableFunds() + profitAndLossDelta));
+         return storedClient;
+      });
 
-      client.setRunningProfitAndLoss(roundToTwoDecimalPlaces(sumOfPositionProfitAndLoss));
-      clientIdToClientModelMap.put(clientId, client);
+      if (client == null) {
+         throw new NoAvailableDataException("No available client data in clientIdToClientModelMap for clientId=" + clientId);
+      }
+   }
 
-      double newAvailableFunds = (client.getAvailableFunds() - oldProfitAndLoss) + sumOfPositionProfitAndLoss;
-      updateAvailableFunds(clientId, roundToTwoDecimalPlaces(newAvailableFunds));
+   private void copyClient(String clientId, List<Client> clients) {
+      clientIdToClientModelMap.computeIfPresent(clientId, (id, storedClient) -> {
+         clients.add(Client.builder()
+               .id(storedClient.getId())
+               .userName(storedClient.getUserName())
+               .availableFunds(storedClient.getAvailableFunds())
+               .runningProfitAndLoss(storedClient.getRunningProfitAndLoss())
+               .build());
+         return storedClient;
+      });
    }
 
    private Client getClientDataFromMap(String clientId) throws NoAvailableDataException {
-      if (clientIdToClientModelMap.containsKey(clientId)) {
-         return clientIdToClientModelMap.get(clientId);
-      } else {
+      Client client = clientIdToClientModelMap.get(clientId);
+      if (client == null) {
          throw new NoAvailableDataException("No available client data in clientIdToClientModelMap for clientId=" + clientId);
       }
+      return client;
    }
 
 }
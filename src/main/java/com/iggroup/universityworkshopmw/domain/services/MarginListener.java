@@ -0,0 +1,11 @@
+package com.iggroup.universityworkshopmw.domain.services;
+
+// Told about a client's funds and the margin held by their open positions whenever either changes, while the
+// client's lock is held
+interface MarginListener {
+
+   MarginListener NO_OP = (clientId, availableFunds, usedMargin) -> {
+   };
+
+   void marginChanged(String clientId, double availableFunds, double usedMargin);
+}
@@ -1,44 +1,83 @@
 package com.iggroup.universityworkshopmw.domain.services;
 
 import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
+import com.iggroup.universityworkshopmw.domain.caches.PriceHistoryCache;
+import com.iggroup.universityworkshopmw.domain.enums.BarResolution;
+import com.iggroup.universityworkshopmw.domain.exceptions.NoAvailableDataException;
 import com.iggroup.universityworkshopmw.domain.model.Market;
+import com.iggroup.universityworkshopmw.domain.model.MarketDataSnapshot;
+import com.iggroup.universityworkshopmw.domain.model.PriceBar;
+import com.iggroup.universityworkshopmw.domain.model.PriceTick;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 @Slf4j
 @Component
 public class MarketDataService {
 
-   private final OpenPositionsService openPositionsService;
+   private final TickPipeline tickPipeline;
    private final MarketDataCache marketDataCache;
+   private final PriceHistoryCache priceHistoryCache;
 
-   public MarketDataService(OpenPositionsService openPositionsService,
-                            MarketDataCache marketDataCache) {
-      this.openPositionsService = openPositionsService;
+   public MarketDataService(TickPipeline tickPipeline,
+                            MarketDataCache marketDataCache,
+                            PriceHistoryCache priceHistoryCache) {
+      this.tickPipeline = tickPipeline;
       this.marketDataCache = marketDataCache;
+      this.priceHistoryCache = priceHistoryCache;
    }
 
    public List<Market> getAllMarkets() {
-      final ArrayList<Market> markets = new ArrayList<>(marketDataCache.values());
+      final List<Market> markets = marketDataCache.getSnapshot().getMarkets();
 //      log.info("Retrieving all markets={}", markets);
       return markets;
    }
 
-   void updateMarket(Market market) {
-      marketDataCache.put(market.getId(), market);
-      // TODO: 12/03/2018 Uncomment line below before committing...
-      // openPositionsService.updateMarketPrice(market.getId(), market.getCurrentPrice());
+   public MarketDataSnapshot getMarketDataSnapshot() {
+      return marketDataCache.getSnapshot();
    }
 
-   List<Map.Entry<String, Market>> getShuffledMapSubset() {
-      List<Map.Entry<String, Market>> marketMapEntries = new ArrayList<>(marketDataCache.entrySet());
-      Collections.shuffle(marketMapEntries);
-      return marketMapEntries.subList(0, marketMapEntries.size() / 2);
+   public List<PriceTick> getPriceTicks(String marketId, long from, long to) throws NoAvailableDataException {
+      return priceHistoryCache.getTicks(marketId, from, to);
+   }
+
+   public List<PriceBar> getPriceBars(String marketId, BarResolution resolution, long from, long to) throws NoAvailableDataException {
+      return priceHistoryCache.getBars(marketId, resolution, from, to);
+   }
+
+   void updateMarketPrice(int marketIndex, double newPrice) {
+      marketDataCache.updateCurrentPrice(marketIndex, newPrice);
+   }
+
+   void recordPriceTick(int marketIndex, long timestamp, double price) {
+      priceHistoryCache.recordTick(marketIndex, timestamp, price);
+   }
+
+   void publishMarketDataSnapshot() {
+      marketDataCache.publishSnapshot();
+   }
+
+   // Open positions are revalued off the calling thread, once prices for a whole batch of markets are in the cache
+   void publishUpdatedMarkets(int[] marketIndexes, int count) {
+      tickPipeline.publish(marketIndexes, count);
+   }
+
+   int getMarketCount() {
+      return marketDataCache.size();
+   }
+
+   boolean isSyntheticMarket(int marketIndex) {
+      return marketDataCache.isSyntheticMarket(marketIndex);
+   }
+
+   Market getMarket(int marketIndex) {
+      return marketDataCache.get(marketDataCache.getMarketId(marketIndex));
+   }
+
+   double getCurrentPrice(int marketIndex) {
+      return marketDataCache.getCurrentPrice(marketIndex);
    }
 
 }
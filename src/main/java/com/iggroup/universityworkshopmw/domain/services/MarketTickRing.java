@@ -0,0 +1,46 @@
+package com.iggroup.universityworkshopmw.domain.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded ring of market indexes with one consumer. Offers never block; a full ring rejects the tick
+class MarketTickRing {
+
+   private final int[] marketIndexes;
+   private final int mask;
+   private final AtomicLong readSequence = new AtomicLong();
+   private final AtomicLong writeSequence = new AtomicLong();
+
+   MarketTickRing(int capacity) {
+      int ringSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+      marketIndexes = new int[ringSize];
+      mask = ringSize - 1;
+   }
+
+   synchronized boolean offer(int marketIndex) {
+      long writePosition = writeSequence.get();
+      if (writePosition - readSequence.get() == marketIndexes.length) {
+         return false;
+      }
+      marketIndexes[(int) writePosition & mask] = marketIndex;
+      writeSequence.lazySet(writePosition + 1);
+      return true;
+   }
+
+   int drainTo(int[] target) {
+      long readPosition = readSequence.get();
+      int count = (int) Math.min(writeSequence.get() - readPosition, target.length);
+      for (int i = 0; i < count; i++) {
+         target[i] = marketIndexes[(int) (readPosition + i) & mask];
+      }
+      readSequence.lazySet(readPosition + count);
+      return count;
+   }
+
+   int size() {
+      return (int) (writeSequence.get() - readSequence.get());
+   }
+
+   int capacity() {
+      return marketIndexes.length;
+   }
+}
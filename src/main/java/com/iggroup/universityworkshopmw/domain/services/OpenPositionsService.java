@@ -1,45 +1,86 @@
 package com.iggroup.universityworkshopmw.domain.services;
 
+import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.Multiset;
+import com.google.common.util.concurrent.Striped;
 import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
 import com.iggroup.universityworkshopmw.domain.exceptions.InsufficientFundsException;
 import com.iggroup.universityworkshopmw.domain.exceptions.MissingBuySizeException;
 import com.iggroup.universityworkshopmw.domain.exceptions.NoAvailableDataException;
 import com.iggroup.universityworkshopmw.domain.exceptions.NoMarketPriceAvailableException;
+import com.iggroup.universityworkshopmw.domain.journal.StateJournal;
 import com.iggroup.universityworkshopmw.domain.model.Client;
 import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import com.iggroup.universityworkshopmw.domain.model.OpenPositionResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
 
-import static com.google.common.collect.Lists.newArrayList;
 import static com.iggroup.universityworkshopmw.domain.helpers.Helper.createUniqueId;
+import static com.iggroup.universityworkshopmw.domain.helpers.Helper.createUniqueIds;
 import static com.iggroup.universityworkshopmw.domain.helpers.Helper.roundToTwoDecimalPlaces;
 
 @Slf4j
 @Component
 public class OpenPositionsService {
 
+   private static final String ID_PREFIX = "opid_";
+   private static final int CLIENT_LOCK_STRIPES = 64;
+
    private final ClientService clientService;
    private final MarketDataCache marketDataCache;
-   private ConcurrentMap<String, List<OpenPosition>> clientPositionStore;
-
-   public OpenPositionsService(ClientService clientService, MarketDataCache marketDataCache) {
+   private final StateJournal stateJournal;
+   // In lazy mode prices are only applied to a client's positions when something reads them, instead of on every tick
+   private final boolean lazyRevaluation;
+   private final Counter revaluedPositionsCounter;
+   private volatile MarginListener marginListener = MarginListener.NO_OP;
+   private ConcurrentMap<String, ClientPositionBook> clientPositionStore;
+   // One entry per open position, so a client stays indexed against a market until its last position there is closed
+   private ConcurrentMap<String, Multiset<String>> marketIdToClientIds;
+   // Every read-modify-write of a client's positions and funds holds that client's stripe, so opens, closes and ticks
+   // for one client are serialised while different clients proceed in parallel. Opens and closes check the journal is
+   // still recording before their first change, and go on to funds through setAvailableFunds, so once started they
+   // are applied in full
+   private final Striped<Lock> clientLocks = Striped.lock(CLIENT_LOCK_STRIPES);
+
+   public OpenPositionsService(ClientService clientService,
+                               MarketDataCache marketDataCache,
+                               StateJournal stateJournal,
+                               @Value("${openPositions.lazyRevaluation:false}") boolean lazyRevaluation,
+                               MeterRegistry meterRegistry) {
       this.clientService = clientService;
       this.marketDataCache = marketDataCache;
+      this.stateJournal = stateJournal;
+      this.lazyRevaluation = lazyRevaluation;
+      this.revaluedPositionsCounter = meterRegistry.counter("positions.revalued");
       clientPositionStore = new ConcurrentHashMap<>();
-
+      marketIdToClientIds = new ConcurrentHashMap<>();
+      if (lazyRevaluation) {
+         clientService.setClientRevaluator(this::revalueClient);
+      }
    }
 
    public List<OpenPosition> getOpenPositionsForClient(String clientId) throws Exception {
-      List<OpenPosition> openPositions = getPositionDataFromMap(clientId);
-
-      if (openPositions != null) {
-         return openPositions;
+      Lock clientLock = lockClient(clientId);
+      try {
+         ClientPositionBook positionBook = getPositionDataFromMap(clientId);
+         if (lazyRevaluation) {
+            revalueClient(clientId);
+         }
+         return positionBook.toList();
+      } finally {
+         clientLock.unlock();
       }
-      throw new NoAvailableDataException("No open positions exist for client: " + clientId);
    }
 
    public OpenPosition addOpenPositionForClient(String clientId, OpenPosition newOpenPosition) throws InsufficientFundsException, NoMarketPriceAvailableException, MissingBuySizeException, NoAvailableDataException {
@@ -52,73 +93,229 @@ public class OpenPositionsService {
       newOpenPositionCopy.setOpeningPrice(marketDataCache.getCurrentPriceForMarket(newOpenPositionCopy.getMarketId()));
 
       double positionPrice = getPositionOpeningPrice(newOpenPositionCopy);
-      List<OpenPosition> openPositionsForClient = clientPositionStore.get(clientId);
-
-      double clientAvailableFunds = checkClientAvailableFunds(clientId, positionPrice);
-      OpenPosition openPositionWithId = updateStoreWithNewPosition(clientId, newOpenPositionCopy, openPositionsForClient);
+      OpenPosition openPositionWithId;
 
-      double newAvailableFunds = calculateNewAvailableFunds(clientAvailableFunds, positionPrice);
-      clientService.updateAvailableFunds(clientId, roundToTwoDecimalPlaces(newAvailableFunds));
+      Lock clientLock = lockClient(clientId);
+      try {
+         double clientAvailableFunds = checkClientAvailableFunds(clientId, positionPrice);
+         stateJournal.checkRecording();
+         openPositionWithId = updateStoreWithNewPosition(clientId, withId(newOpenPositionCopy, createUniqueId(ID_PREFIX)));
+
+         double newAvailableFunds = calculateNewAvailableFunds(clientAvailableFunds, positionPrice);
+         clientService.setAvailableFunds(clientId, roundToTwoDecimalPlaces(newAvailableFunds));
+         publishMargin(clientId);
+      } finally {
+         clientLock.unlock();
+      }
 
       log.info("Added new openPosition={}", newOpenPositionCopy);
       return openPositionWithId;
    }
 
-   public Double closeOpenPosition(String clientId, String openPositionToClose) throws NoAvailableDataException, NoMarketPriceAvailableException {
-      List<OpenPosition> openPositions = getPositionDataFromMap(clientId);
+   // Items without a buy size or a market price are rejected individually; the rest are opened together or, if the
+   // client cannot fund all of them, not at all
+   public List<OpenPositionResult> addOpenPositionsForClient(String clientId, List<OpenPosition> newOpenPositions) throws InsufficientFundsException, NoAvailableDataException {
+      List<OpenPositionResult> results = new ArrayList<>(newOpenPositions.size());
+      List<OpenPosition> acceptedPositions = new ArrayList<>(newOpenPositions.size());
+      List<Integer> acceptedIndexes = new ArrayList<>(newOpenPositions.size());
+      double batchPrice = 0;
+
+      for (OpenPosition newOpenPosition : newOpenPositions) {
+         if (newOpenPosition.getBuySize() == 0) {
+            results.add(rejectedResult(newOpenPosition, "Buy size is ZERO. Cannot open a position with size ZERO."));
+            continue;
+         }
+         try {
+            OpenPosition acceptedPosition = OpenPosition.builder()
+                  .marketId(newOpenPosition.getMarketId())
+                  .buySize(newOpenPosition.getBuySize())
+                  .openingPrice(marketDataCache.getCurrentPriceForMarket(newOpenPosition.getMarketId()))
+                  .build();
+            batchPrice += getPositionOpeningPrice(acceptedPosition);
+            acceptedPositions.add(acceptedPosition);
+            acceptedIndexes.add(results.size());
+            results.add(null);
+         } catch (NoMarketPriceAvailableException e) {
+            results.add(rejectedResult(newOpenPosition, "No available price for marketId=" + newOpenPosition.getMarketId()));
+         }
+      }
 
-      OpenPosition position = openPositions.stream()
-            .filter(pos -> pos.getId().equals(openPositionToClose))
-            .findFirst()
-            .orElseThrow(() -> new NoAvailableDataException("No position exists with id: " + openPositionToClose));
+      if (acceptedPositions.isEmpty()) {
+         return results;
+      }
 
-      double closingPrice = marketDataCache.getCurrentPriceForMarket(position.getMarketId());
+      List<String> ids = createUniqueIds(ID_PREFIX, acceptedPositions.size());
+      Lock clientLock = lockClient(clientId);
+      try {
+         double clientAvailableFunds = checkClientAvailableFunds(clientId, batchPrice);
+         stateJournal.checkRecording();
+         for (int i = 0; i < acceptedPositions.size(); i++) {
+            OpenPosition openPosition = updateStoreWithNewPosition(clientId, withId(acceptedPositions.get(i), ids.get(i)));
+            results.set(acceptedIndexes.get(i), OpenPositionResult.builder()
+                  .marketId(openPosition.getMarketId())
+                  .buySize(openPosition.getBuySize())
+                  .openPosition(openPosition)
+                  .build());
+         }
+
+         double newAvailableFunds = calculateNewAvailableFunds(clientAvailableFunds, batchPrice);
+         clientService.setAvailableFunds(clientId, roundToTwoDecimalPlaces(newAvailableFunds));
+         publishMargin(clientId);
+      } finally {
+         clientLock.unlock();
+      }
 
-      double openingPositionPrice = getPositionOpeningPrice(position);
-      double closingProfitAndLoss = calculateNewProfitAndLoss(closingPrice, position.getOpeningPrice(), position.getBuySize());
+      log.info("Added {} new open positions for clientId={}, rejected {}", acceptedPositions.size(), clientId, results.size() - acceptedPositions.size());
+      return results;
+   }
 
-      openPositions.remove(position);
-      if (openPositions.isEmpty()) {
-         clientPositionStore.remove(clientId);
+   public Double closeOpenPosition(String clientId, String openPositionToClose) throws NoAvailableDataException, NoMarketPriceAvailableException {
+      Lock clientLock = lockClient(clientId);
+      try {
+         ClientPositionBook positionBook = getPositionDataFromMap(clientId);
+
+         int slot = positionBook.indexOf(openPositionToClose);
+         if (slot < 0) {
+            throw new NoAvailableDataException("No position exists with id: " + openPositionToClose);
+         }
+         OpenPosition position = positionBook.get(slot);
+
+         double closingPrice = marketDataCache.getCurrentPriceForMarket(position.getMarketId());
+
+         double openingPositionPrice = getPositionOpeningPrice(position);
+         double closingProfitAndLoss = calculateNewProfitAndLoss(closingPrice, position.getOpeningPrice(), position.getBuySize());
+
+         stateJournal.checkRecording();
+         positionBook.remove(slot);
+         stateJournal.positionClosed(clientId, position.getId());
+         removeFromMarketIndex(clientId, position.getMarketId());
+         if (positionBook.isEmpty()) {
+            clientPositionStore.remove(clientId);
+         }
+
+         applyProfitAndLossDelta(clientId, -position.getProfitAndLoss());
+         final double closingFunds = calculateClosingFunds(clientId, closingProfitAndLoss, openingPositionPrice);
+         clientService.setAvailableFunds(clientId, roundToTwoDecimalPlaces(closingFunds));
+         publishMargin(clientId);
+
+         log.info("Closed openPosition={}, closingProfitAndLoss={}", position, closingProfitAndLoss);
+         return closingProfitAndLoss;
+      } finally {
+         clientLock.unlock();
       }
+   }
 
-      calculateAndUpdateRunningProfitAndLoss(clientId, clientPositionStore.get(clientId));
-      final double closingFunds = calculateClosingFunds(clientId, closingProfitAndLoss, openingPositionPrice);
-      clientService.updateAvailableFunds(clientId, roundToTwoDecimalPlaces(closingFunds));
+   public Map<String, List<OpenPosition>> getOpenPositionSnapshot() {
+      Map<String, List<OpenPosition>> openPositions = new LinkedHashMap<>();
+      clientPositionStore.keySet().forEach(clientId -> {
+         Lock clientLock = lockClient(clientId);
+         try {
+            ClientPositionBook positionBook = clientPositionStore.get(clientId);
+            if (positionBook != null) {
+               openPositions.put(clientId, positionBook.toList());
+            }
+         } finally {
+            clientLock.unlock();
+         }
+      });
+      return openPositions;
+   }
 
-      log.info("Closed openPosition={}, closingProfitAndLoss={}", position, closingProfitAndLoss);
-      return closingProfitAndLoss;
+   public void restoreOpenPositions(Map<String, List<OpenPosition>> openPositions) {
+      openPositions.forEach((clientId, clientPositions) -> clientPositions
+            .forEach(openPosition -> updateStoreWithNewPosition(clientId, openPosition, false)));
    }
 
-   void updateMarketPrice(String marketId, Double newValue) {
-      clientPositionStore.keySet()
-            .forEach(clientId -> {
-               List<OpenPosition> openPositions = clientPositionStore.get(clientId);
-               openPositions.stream()
-                     .filter(openPosition -> openPosition.getMarketId().equals(marketId))
-                     .forEach(openPosition -> updateProfitAndLoss(newValue, openPosition, openPositions));
+   // Reprices every open position in the market and applies each client's resulting profit and loss delta before
+   // releasing that client's lock, so their positions and running profit and loss are never seen out of step
+   void updateMarketPrice(String marketId, double newValue) {
+      Multiset<String> clientIds = marketIdToClientIds.get(marketId);
+      if (clientIds == null) {
+         return;
+      }
 
-               if (openPositions.stream().anyMatch(openPosition -> openPosition.getMarketId().equals(marketId))) {
-                  calculateAndUpdateRunningProfitAndLoss(clientId, openPositions);
+      // The index holds one entry per open position, so its size is the number of positions about to be repriced
+      revaluedPositionsCounter.increment(clientIds.size());
+      int marketIndex = marketDataCache.indexOf(marketId);
+      clientIds.elementSet()
+            .forEach(clientId -> {
+               Lock clientLock = lockClient(clientId);
+               try {
+                  ClientPositionBook positionBook = clientPositionStore.get(clientId);
+                  if (positionBook != null) {
+                     double profitAndLossDelta = positionBook.revalueMarket(marketIndex, marketId, newValue);
+                     applyRevaluedProfitAndLoss(clientId, profitAndLossDelta);
+                  }
+               } finally {
+                  clientLock.unlock();
                }
             });
    }
 
-   private void calculateAndUpdateRunningProfitAndLoss(String clientId, List<OpenPosition> openpositionsForClient) {
-      double sumOfPositionProfitAndLoss;
-      if (openpositionsForClient == null) {
-         sumOfPositionProfitAndLoss = 0;
-      } else {
-         sumOfPositionProfitAndLoss = openpositionsForClient
-               .stream()
-               .map(OpenPosition::getProfitAndLoss)
-               .mapToDouble(d -> d)
-               .sum();
+   boolean isLazyRevaluation() {
+      return lazyRevaluation;
+   }
+
+   // Reprices all of one client's positions at the latest cached prices and applies the change to their profit and loss
+   void revalueClient(String clientId) {
+      Lock clientLock = lockClient(clientId);
+      try {
+         ClientPositionBook positionBook = clientPositionStore.get(clientId);
+         if (positionBook == null) {
+            return;
+         }
+
+         double profitAndLossDelta = 0;
+         for (int slot = 0; slot < positionBook.size(); slot++) {
+            int marketIndex = positionBook.getMarketIndex(slot);
+            try {
+               double currentPrice = marketIndex >= 0
+                     ? marketDataCache.getCurrentPrice(marketIndex)
+                     : marketDataCache.getCurrentPriceForMarket(positionBook.getMarketId(slot));
+               profitAndLossDelta += positionBook.revalue(slot, currentPrice);
+            } catch (NoMarketPriceAvailableException e) {
+               log.error("Could not revalue openPosition={}, as no price is available. Exception={}", positionBook.get(slot), e.getMessage());
+            }
+         }
+
+         if (profitAndLossDelta != 0) {
+            applyRevaluedProfitAndLoss(clientId, profitAndLossDelta);
+         }
+      } finally {
+         clientLock.unlock();
       }
+   }
+
+   void setMarginListener(MarginListener marginListener) {
+      this.marginListener = marginListener;
+   }
+
+   private Lock lockClient(String clientId) {
+      Lock clientLock = clientLocks.get(clientId);
+      clientLock.lock();
+      return clientLock;
+   }
+
+   private void applyRevaluedProfitAndLoss(String clientId, double profitAndLossDelta) {
+      applyProfitAndLossDelta(clientId, profitAndLossDelta);
+      publishMargin(clientId);
+   }
+
+   private void publishMargin(String clientId) {
+      try {
+         ClientPositionBook positionBook = clientPositionStore.get(clientId);
+         double usedMargin = positionBook == null ? 0 : positionBook.getUsedMargin();
+         marginListener.marginChanged(clientId, clientService.getAvailableFunds(clientId), usedMargin);
+      } catch (NoAvailableDataException e) {
+         log.error("Could not publish margin, as no available data for clientId={}. Exception={}", clientId, e.getMessage());
+      }
+   }
+
+   private void applyProfitAndLossDelta(String clientId, double profitAndLossDelta) {
       try {
-         clientService.updateRunningProfitAndLoss(clientId, sumOfPositionProfitAndLoss);
+         clientService.applyProfitAndLossDelta(clientId, profitAndLossDelta);
       } catch (NoAvailableDataException e) {
-         log.error("Could not update running profit and loss and available funds for client, when updating market price, as no available data for clientId={}. Exception={}", clientId, e.getMessage());
+         log.error("Could not apply profitAndLossDelta={} to running profit and loss and available funds, as no available data for clientId={}. Exception={}", profitAndLossDelta, clientId, e.getMessage());
       }
    }
 
@@ -130,20 +327,21 @@ public class OpenPositionsService {
       return (clientAvailableFunds - positionPrice);
    }
 
-   private void updateProfitAndLoss(Double newValue, OpenPosition openPosition, List<OpenPosition> openPositions) {
-      Double newProfitAndLoss = calculateNewProfitAndLoss(newValue, openPosition.getOpeningPrice(), openPosition.getBuySize());
-      openPositions.set(openPositions.indexOf(openPosition), createNewPosition(openPosition, newProfitAndLoss, false));
+   private OpenPositionResult rejectedResult(OpenPosition openPosition, String error) {
+      return OpenPositionResult.builder()
+            .marketId(openPosition.getMarketId())
+            .buySize(openPosition.getBuySize())
+            .error(error)
+            .build();
    }
 
-   private OpenPosition createNewPosition(OpenPosition openPosition, Double profitAndLoss, boolean generateId) {
-      String id = checkForDuplicateOpenPositionId(openPosition, generateId);
-
+   private OpenPosition withId(OpenPosition openPosition, String id) {
       return OpenPosition.builder()
             .id(id)
             .marketId(openPosition.getMarketId())
             .buySize(openPosition.getBuySize())
             .openingPrice(openPosition.getOpeningPrice())
-            .profitAndLoss(profitAndLoss)
+            .profitAndLoss(openPosition.getProfitAndLoss())
             .build();
    }
 
@@ -151,14 +349,6 @@ public class OpenPositionsService {
       return (newValue - openingPrice) * buySize;
    }
 
-   private String checkForDuplicateOpenPositionId(OpenPosition openPosition, boolean generateId) {
-      String id;
-      do {
-         id = generateId ? createUniqueId("opid_") : openPosition.getId();
-      } while (generateId && clientPositionStore.containsKey(id));
-      return id;
-   }
-
    private double checkClientAvailableFunds(String clientId, double positionPrice) throws NoAvailableDataException, InsufficientFundsException {
       Client client = clientService.getClientData(clientId);
 
@@ -168,19 +358,32 @@ public class OpenPositionsService {
       return client.getAvailableFunds();
    }
 
-   private OpenPosition updateStoreWithNewPosition(String clientId, OpenPosition newOpenPosition, List<OpenPosition> openPositionsForClient) {
-      OpenPosition openPosition = createNewPosition(newOpenPosition, newOpenPosition.getProfitAndLoss(), true);
-      if (openPositionsForClient != null) {
-         openPositionsForClient.add(openPosition);
-      } else {
-         clientPositionStore.put(clientId, newArrayList(openPosition));
+   private OpenPosition updateStoreWithNewPosition(String clientId, OpenPosition openPosition) {
+      return updateStoreWithNewPosition(clientId, openPosition, true);
+   }
+
+   private OpenPosition updateStoreWithNewPosition(String clientId, OpenPosition openPosition, boolean journal) {
+      clientPositionStore.computeIfAbsent(clientId, id -> new ClientPositionBook())
+            .add(openPosition, marketDataCache.indexOf(openPosition.getMarketId()));
+      if (journal) {
+         stateJournal.positionOpened(clientId, openPosition);
       }
+      marketIdToClientIds.computeIfAbsent(openPosition.getMarketId(), marketId -> ConcurrentHashMultiset.create())
+            .add(clientId);
       return openPosition;
    }
 
-   private List<OpenPosition> getPositionDataFromMap(String clientId) throws NoAvailableDataException {
-      if (clientPositionStore.containsKey(clientId)) {
-         return clientPositionStore.get(clientId);
+   private void removeFromMarketIndex(String clientId, String marketId) {
+      Multiset<String> clientIds = marketIdToClientIds.get(marketId);
+      if (clientIds != null) {
+         clientIds.remove(clientId);
+      }
+   }
+
+   private ClientPositionBook getPositionDataFromMap(String clientId) throws NoAvailableDataException {
+      ClientPositionBook positionBook = clientPositionStore.get(clientId);
+      if (positionBook != null) {
+         return positionBook;
       }
       throw new NoAvailableDataException("No positions available for client: " + clientId);
    }
@@ -0,0 +1,9 @@
+package com.iggroup.universityworkshopmw.domain.services;
+
+import java.util.Random;
+
+public interface PriceGenerator {
+
+   double generateNewMarketPrice(double oldPrice, Random random);
+
+}
@@ -1,52 +1,132 @@
 package com.iggroup.universityworkshopmw.domain.services;
 
+import com.iggroup.universityworkshopmw.domain.events.MarketDataUpdatedEvent;
 import com.iggroup.universityworkshopmw.domain.model.Market;
-import org.apache.commons.math3.distribution.NormalDistribution;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
 
+@Slf4j
 @Component
 public class PriceGeneratorService {
 
-   private final NormalDistribution normalDistribution = new NormalDistribution(0, 40);
-   private MarketDataService marketDataService;
+   private final MarketDataService marketDataService;
+   private final PriceGenerator priceGenerator;
+   private final ApplicationEventPublisher eventPublisher;
+   private final List<MarketPartition> partitions = new ArrayList<>();
+   private final ExecutorService partitionExecutor;
+   private final Timer tickTimer;
 
-   public PriceGeneratorService(MarketDataService marketDataService) {
+   public PriceGeneratorService(MarketDataService marketDataService,
+                                PriceGenerator priceGenerator,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${priceGenerator.threads:1}") int threads,
+                                MeterRegistry meterRegistry) {
       this.marketDataService = marketDataService;
+      this.priceGenerator = priceGenerator;
+      this.eventPublisher = eventPublisher;
+      this.tickTimer = meterRegistry.timer("price.generator.tick");
+
+      int marketCount = marketDataService.getMarketCount();
+      int partitionCount = Math.max(1, Math.min(threads, marketCount));
+      for (int partition = 0; partition < partitionCount; partition++) {
+         partitions.add(new MarketPartition(marketCount * partition / partitionCount, marketCount * (partition + 1) / partitionCount));
+      }
+      partitionExecutor = partitionCount > 1 ? Executors.newFixedThreadPool(partitionCount) : null;
    }
 
-   @Scheduled(fixedRate = 300)
-   private void updateMarketPrices() {
-      List<Map.Entry<String, Market>> updateSubList = marketDataService.getShuffledMapSubset();
+   @Scheduled(fixedRateString = "${priceGenerator.tickRateMillis:300}")
+   void updateMarketPrices() {
+      long tickStart = System.nanoTime();
+      if (partitionExecutor == null) {
+         partitions.get(0).call();
+      } else {
+         generatePartitionsInParallel();
+      }
 
-      updateSubList.forEach(entry -> {
-         Market entryValue = entry.getValue();
-         String id = entryValue.getId();
-         Double oldPrice = entryValue.getCurrentPrice();
+      marketDataService.publishMarketDataSnapshot();
+      publishUpdatedMarkets();
+      tickTimer.record(System.nanoTime() - tickStart, TimeUnit.NANOSECONDS);
+   }
 
-         double newMarketPrice = generateNewMarketPrice(oldPrice);
-         marketDataService.updateMarket(Market.builder()
-               .id(id)
-               .marketName(entryValue.getMarketName())
-               .currentPrice(newMarketPrice)
-               .build()
-         );
+   @PreDestroy
+   public void shutdown() {
+      if (partitionExecutor != null) {
+         partitionExecutor.shutdownNow();
+      }
+   }
 
-      });
+   private void generatePartitionsInParallel() {
+      try {
+         for (Future<Void> partitionResult : partitionExecutor.invokeAll(partitions)) {
+            partitionResult.get();
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+         log.error("Could not generate market prices for partition, exceptionMessage={}", e.getCause().getMessage(), e.getCause());
+      }
+   }
 
+   private void publishUpdatedMarkets() {
+      List<Market> updatedMarkets = new ArrayList<>();
+      partitions.forEach(partition -> {
+         marketDataService.publishUpdatedMarkets(partition.updatedMarketIndexes, partition.updatedMarketCount);
+         for (int i = 0; i < partition.updatedMarketCount; i++) {
+            int marketIndex = partition.updatedMarketIndexes[i];
+            if (!marketDataService.isSyntheticMarket(marketIndex)) {
+               updatedMarkets.add(marketDataService.getMarket(marketIndex));
+            }
+         }
+      });
+      eventPublisher.publishEvent(new MarketDataUpdatedEvent(updatedMarkets));
    }
 
-   private double generateNewMarketPrice(double oldPrice) {
-      double normalDist = normalDistribution.sample();
-      double newPrice = (oldPrice + normalDist);
-      if (newPrice <= 1) {
-         newPrice = 1;
+   // Owns a contiguous range of market indexes, so partitions never update the same market
+   private class MarketPartition implements Callable<Void> {
+      private final int fromMarketIndex;
+      private final int toMarketIndex;
+      private final int[] updatedMarketIndexes;
+      private int updatedMarketCount;
+
+      private MarketPartition(int fromMarketIndex, int toMarketIndex) {
+         this.fromMarketIndex = fromMarketIndex;
+         this.toMarketIndex = toMarketIndex;
+         this.updatedMarketIndexes = new int[toMarketIndex - fromMarketIndex];
+      }
+
+      @Override
+      public Void call() {
+         ThreadLocalRandom random = ThreadLocalRandom.current();
+         long tickTime = System.currentTimeMillis();
+         updatedMarketCount = 0;
+
+         // Each tick moves roughly half of the markets
+         for (int marketIndex = fromMarketIndex; marketIndex < toMarketIndex; marketIndex++) {
+            if (random.nextBoolean()) {
+               double oldPrice = marketDataService.getCurrentPrice(marketIndex);
+               double newMarketPrice = priceGenerator.generateNewMarketPrice(oldPrice, random);
+               marketDataService.updateMarketPrice(marketIndex, newMarketPrice);
+               marketDataService.recordPriceTick(marketIndex, tickTime, newMarketPrice);
+               updatedMarketIndexes[updatedMarketCount++] = marketIndex;
+            }
+         }
+         return null;
       }
-      return new BigDecimal(newPrice).setScale(2, RoundingMode.HALF_UP).doubleValue(); //2 decimal places
    }
 }
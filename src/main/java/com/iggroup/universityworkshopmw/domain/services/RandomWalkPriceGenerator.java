@@ -0,0 +1,29 @@
+package com.iggroup.universityworkshopmw.domain.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Random;
+
+import static com.iggroup.universityworkshopmw.domain.helpers.Helper.roundToTwoDecimalPlaces;
+
+@Component
+public class RandomWalkPriceGenerator implements PriceGenerator {
+
+   private static final double MINIMUM_PRICE = 1;
+
+   private final double standardDeviation;
+
+   public RandomWalkPriceGenerator(@Value("${priceGenerator.standardDeviation:40}") double standardDeviation) {
+      this.standardDeviation = standardDeviation;
+   }
+
+   @Override
+   public double generateNewMarketPrice(double oldPrice, Random random) {
+      double newPrice = oldPrice + random.nextGaussian() * standardDeviation;
+      if (newPrice <= MINIMUM_PRICE) {
+         newPrice = MINIMUM_PRICE;
+      }
+      return roundToTwoDecimalPlaces(newPrice);
+   }
+}
@@ -0,0 +1,166 @@
+package com.iggroup.universityworkshopmw.domain.services;
+
+import com.iggroup.universityworkshopmw.domain.exceptions.NoAvailableDataException;
+import com.iggroup.universityworkshopmw.domain.exceptions.NoMarketPriceAvailableException;
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Semaphore;
+
+// Keeps every client with open positions ordered by margin headroom, updating only the clients whose funds just
+// changed. A client is stopped out once their equity, funds plus the margin held by their positions, falls below
+// stopOutLevel times that margin; their worst positions are then closed until they are back above it.
+// Closing positions automatically is opt in, so the engine only runs when risk.enabled=true
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "risk.enabled", havingValue = "true")
+public class RiskEngine implements MarginListener {
+
+   private final OpenPositionsService openPositionsService;
+   private final double stopOutLevel;
+   private final Counter stoppedOutPositionsCounter;
+   private final Map<String, ClientHeadroom> clientHeadrooms = new ConcurrentHashMap<>();
+   private final ConcurrentSkipListSet<ClientHeadroom> headroomOrder = new ConcurrentSkipListSet<>(
+         Comparator.comparingDouble(ClientHeadroom::getHeadroom).thenComparing(ClientHeadroom::getClientId));
+   // Released whenever a client drops below the stop-out level, so the stop-out thread only wakes when there is work
+   private final Semaphore breaches = new Semaphore(0);
+   private final Thread stopOutThread;
+   private volatile boolean running;
+
+   public RiskEngine(OpenPositionsService openPositionsService,
+                     @Value("${risk.stopOutLevel:1.0}") double stopOutLevel,
+                     MeterRegistry meterRegistry) {
+      this.openPositionsService = openPositionsService;
+      this.stopOutLevel = stopOutLevel;
+      this.stoppedOutPositionsCounter = meterRegistry.counter("positions.stopped.out");
+      this.stopOutThread = new Thread(this::runStopOuts, "risk-engine-stop-out");
+      openPositionsService.setMarginListener(this);
+      meterRegistry.gauge("risk.clients.breached", headroomOrder, order -> countBreachedClients());
+   }
+
+   @PostConstruct
+   public void start() {
+      running = true;
+      stopOutThread.setDaemon(true);
+      stopOutThread.start();
+   }
+
+   @PreDestroy
+   public void stop() throws InterruptedException {
+      running = false;
+      stopOutThread.interrupt();
+      stopOutThread.join();
+   }
+
+   // Called under the client's lock, so updates for one client are never interleaved
+   @Override
+   public void marginChanged(String clientId, double availableFunds, double usedMargin) {
+      ClientHeadroom previous = usedMargin == 0
+            ? clientHeadrooms.remove(clientId)
+            : clientHeadrooms.put(clientId, new ClientHeadroom(clientId, availableFunds + (1 - stopOutLevel) * usedMargin));
+      if (previous != null) {
+         headroomOrder.remove(previous);
+      }
+      if (usedMargin == 0) {
+         return;
+      }
+
+      ClientHeadroom current = clientHeadrooms.get(clientId);
+      headroomOrder.add(current);
+      if (current.getHeadroom() < 0) {
+         breaches.release();
+      }
+   }
+
+   // Clients are taken from the front of the ordering until one is found with headroom left
+   void processBreaches() {
+      List<String> breachedClientIds = new ArrayList<>();
+      for (ClientHeadroom clientHeadroom : headroomOrder) {
+         if (clientHeadroom.getHeadroom() >= 0) {
+            break;
+         }
+         breachedClientIds.add(clientHeadroom.getClientId());
+      }
+      breachedClientIds.forEach(this::stopOut);
+   }
+
+   private void runStopOuts() {
+      while (running) {
+         try {
+            breaches.acquire();
+            breaches.drainPermits();
+            processBreaches();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+         } catch (RuntimeException e) {
+            log.error("Could not stop out clients, exceptionMessage={}", e.getMessage(), e);
+         }
+      }
+   }
+
+   private void stopOut(String clientId) {
+      List<OpenPosition> openPositions;
+      try {
+         openPositions = new ArrayList<>(openPositionsService.getOpenPositionsForClient(clientId));
+      } catch (Exception e) {
+         return;
+      }
+      openPositions.sort(Comparator.comparingDouble(OpenPosition::getProfitAndLoss));
+
+      for (OpenPosition openPosition : openPositions) {
+         if (!isBreached(clientId)) {
+            return;
+         }
+         try {
+            double closingProfitAndLoss = openPositionsService.closeOpenPosition(clientId, openPosition.getId());
+            stoppedOutPositionsCounter.increment();
+            log.warn("Stopped out openPosition={} for clientId={}, closingProfitAndLoss={}", openPosition, clientId, closingProfitAndLoss);
+         } catch (NoAvailableDataException | NoMarketPriceAvailableException e) {
+            log.info("Could not stop out openPosition={} for clientId={}. Exception={}", openPosition, clientId, e.getMessage());
+         }
+      }
+   }
+
+   private boolean isBreached(String clientId) {
+      ClientHeadroom clientHeadroom = clientHeadrooms.get(clientId);
+      return clientHeadroom != null && clientHeadroom.getHeadroom() < 0;
+   }
+
+   private int countBreachedClients() {
+      int breachedClients = 0;
+      for (ClientHeadroom clientHeadroom : headroomOrder) {
+         if (clientHeadroom.getHeadroom() >= 0) {
+            break;
+         }
+         breachedClients++;
+      }
+      return breachedClients;
+   }
+
+   @Getter
+   @ToString
+   @EqualsAndHashCode
+   @RequiredArgsConstructor
+   static class ClientHeadroom {
+      private final String clientId;
+      private final double headroom;
+   }
+}
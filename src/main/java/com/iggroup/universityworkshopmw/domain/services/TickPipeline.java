@@ -0,0 +1,144 @@
+package com.iggroup.universityworkshopmw.domain.services;
+
+import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Carries price updates off the price generation threads to a revaluation stage on its own thread, through a bounded
+// ring. The stage reprices each moved market's positions and applies every client's profit and loss delta under that
+// client's lock, so a client's positions and running profit and loss always change together. It reads prices from the
+// cache when it gets to a market, so it only ever needs to know which markets moved. When it falls so far behind that
+// the tick ring fills up, price generation carries on regardless and the stage catches up by revaluing every market.
+// In conflating mode a market is only queued if it is not already waiting, so however fast prices tick, the revaluation
+// stage never has more than one entry per market to work through
+@Slf4j
+@Component
+public class TickPipeline {
+
+   private static final long IDLE_PARK_NANOS = 100_000;
+
+   private final OpenPositionsService openPositionsService;
+   private final MarketDataCache marketDataCache;
+   private final MarketTickRing marketTicks;
+   private final AtomicBoolean marketTicksOverflowed = new AtomicBoolean();
+   private final AtomicIntegerArray pendingMarkets;
+   private final Thread revaluationThread;
+   private final boolean revaluationEnabled;
+   private final Timer revaluationTimer;
+   private final Counter overflowCounter;
+   private volatile boolean running;
+
+   public TickPipeline(OpenPositionsService openPositionsService,
+                       MarketDataCache marketDataCache,
+                       @Value("${tickPipeline.ringSize:4096}") int ringSize,
+                       @Value("${tickPipeline.conflation:true}") boolean conflation,
+                       MeterRegistry meterRegistry) {
+      this.openPositionsService = openPositionsService;
+      this.marketDataCache = marketDataCache;
+      this.revaluationEnabled = !openPositionsService.isLazyRevaluation();
+      this.pendingMarkets = conflation ? new AtomicIntegerArray(marketDataCache.size()) : null;
+      this.marketTicks = new MarketTickRing(conflation ? Math.max(ringSize, marketDataCache.size()) : ringSize);
+      this.revaluationThread = new Thread(this::runRevaluationStage, "tick-pipeline-revaluation");
+      this.revaluationTimer = meterRegistry.timer("positions.revaluation");
+      this.overflowCounter = meterRegistry.counter("tick.pipeline.overflows");
+      meterRegistry.gauge("tick.pipeline.pending", marketTicks, MarketTickRing::size);
+   }
+
+   // With lazy revaluation, positions are repriced when they are read, so ticks need not go anywhere
+   @PostConstruct
+   public void start() {
+      if (!revaluationEnabled) {
+         return;
+      }
+      running = true;
+      revaluationThread.setDaemon(true);
+      revaluationThread.start();
+   }
+
+   @PreDestroy
+   public void stop() throws InterruptedException {
+      running = false;
+      revaluationThread.join();
+   }
+
+   public void publish(int marketIndex) {
+      if (!revaluationEnabled) {
+         return;
+      }
+      if (pendingMarkets != null && !pendingMarkets.compareAndSet(marketIndex, 0, 1)) {
+         return;
+      }
+      if (!marketTicks.offer(marketIndex)) {
+         marketTicksOverflowed.set(true);
+      }
+   }
+
+   public void publish(int[] marketIndexes, int count) {
+      for (int i = 0; i < count; i++) {
+         publish(marketIndexes[i]);
+      }
+   }
+
+   private void runRevaluationStage() {
+      int[] marketIndexBatch = new int[marketTicks.capacity()];
+      boolean[] revaluedInBatch = new boolean[marketDataCache.size()];
+
+      while (running) {
+         try {
+            long batchStart;
+            if (marketTicksOverflowed.getAndSet(false)) {
+               overflowCounter.increment();
+               batchStart = System.nanoTime();
+               marketTicks.drainTo(marketIndexBatch);
+               for (int marketIndex = 0; marketIndex < revaluedInBatch.length; marketIndex++) {
+                  revalue(marketIndex);
+               }
+            } else {
+               int batchSize = marketTicks.drainTo(marketIndexBatch);
+               if (batchSize == 0) {
+                  LockSupport.parkNanos(IDLE_PARK_NANOS);
+                  continue;
+               }
+               batchStart = System.nanoTime();
+               // A market that moved several times since the last batch only needs revaluing at its latest price
+               for (int i = 0; i < batchSize; i++) {
+                  int marketIndex = marketIndexBatch[i];
+                  if (!revaluedInBatch[marketIndex]) {
+                     revaluedInBatch[marketIndex] = true;
+                     revalue(marketIndex);
+                  }
+               }
+               for (int i = 0; i < batchSize; i++) {
+                  revaluedInBatch[marketIndexBatch[i]] = false;
+               }
+            }
+            revaluationTimer.record(System.nanoTime() - batchStart, TimeUnit.NANOSECONDS);
+         } catch (RuntimeException e) {
+            log.error("Could not revalue open positions, exceptionMessage={}", e.getMessage(), e);
+         }
+      }
+   }
+
+   int getPendingTickCount() {
+      return marketTicks.size();
+   }
+
+   private void revalue(int marketIndex) {
+      // Cleared before the price is read, so a tick landing after this point queues the market again
+      if (pendingMarkets != null) {
+         pendingMarkets.set(marketIndex, 0);
+      }
+      openPositionsService.updateMarketPrice(marketDataCache.getMarketId(marketIndex), marketDataCache.getCurrentPrice(marketIndex));
+   }
+}
@@ -0,0 +1,130 @@
+package com.iggroup.universityworkshopmw.integration.binary;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+// Fixed layout, little endian frames. Every frame starts with a header of
+//    int32 frameLength (bytes after this field), int16 templateId, int64 correlationId
+// followed by a body whose layout is fixed per template. Strings are a uint8 length then ASCII bytes. A request whose
+// body does not exactly fill its frameLength is rejected as MALFORMED_FRAME.
+// Fields are read and written at absolute offsets straight from the connection's buffers, so decoding a frame creates
+// nothing but the strings the services are keyed by
+public final class BinaryMessageCodec {
+
+   public static final int LENGTH_FIELD_BYTES = Integer.BYTES;
+   public static final int HEADER_BYTES = LENGTH_FIELD_BYTES + Short.BYTES + Long.BYTES;
+   public static final int MAX_STRING_BYTES = 0xFF;
+   // Large enough for any response the server writes
+   public static final int MAX_RESPONSE_BYTES = HEADER_BYTES + 1 + MAX_STRING_BYTES + Double.BYTES;
+
+   // Requests
+   public static final short OPEN_POSITION = 1;
+   public static final short CLOSE_POSITION = 2;
+   public static final short QUOTE_REQUEST = 3;
+
+   // Responses
+   public static final short POSITION_OPENED = 101;
+   public static final short POSITION_CLOSED = 102;
+   public static final short QUOTE = 103;
+   public static final short REJECT = 199;
+
+   // Reject reasons
+   public static final short INVALID_REQUEST = 1;
+   public static final short INSUFFICIENT_FUNDS = 2;
+   public static final short NO_AVAILABLE_DATA = 3;
+   public static final short NO_MARKET_PRICE = 4;
+   public static final short INTERNAL_ERROR = 5;
+   public static final short MALFORMED_FRAME = 6;
+
+   private static final int TEMPLATE_ID_OFFSET = LENGTH_FIELD_BYTES;
+   private static final int CORRELATION_ID_OFFSET = TEMPLATE_ID_OFFSET + Short.BYTES;
+
+   private BinaryMessageCodec() {
+   }
+
+   public static int frameLength(ByteBuffer buffer, int frameOffset) {
+      return buffer.getInt(frameOffset);
+   }
+
+   public static short templateId(ByteBuffer buffer, int frameOffset) {
+      return buffer.getShort(frameOffset + TEMPLATE_ID_OFFSET);
+   }
+
+   public static long correlationId(ByteBuffer buffer, int frameOffset) {
+      return buffer.getLong(frameOffset + CORRELATION_ID_OFFSET);
+   }
+
+   public static int bodyOffset(int frameOffset) {
+      return frameOffset + HEADER_BYTES;
+   }
+
+   // Offset just past the last byte of the frame at frameOffset
+   public static int frameEnd(ByteBuffer buffer, int frameOffset) {
+      return frameOffset + LENGTH_FIELD_BYTES + frameLength(buffer, frameOffset);
+   }
+
+   // Bytes taken by the string at offset, including its length
+   public static int asciiLength(ByteBuffer buffer, int offset) {
+      return 1 + (buffer.get(offset) & 0xFF);
+   }
+
+   // Whether the string at offset, including its length, ends at or before end
+   public static boolean asciiFits(ByteBuffer buffer, int offset, int end) {
+      return offset < end && offset + asciiLength(buffer, offset) <= end;
+   }
+
+   public static String getAscii(ByteBuffer buffer, int offset) {
+      int length = buffer.get(offset) & 0xFF;
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; i++) {
+         bytes[i] = buffer.get(offset + 1 + i);
+      }
+      return new String(bytes, US_ASCII);
+   }
+
+   // Starts a frame at the buffer's position and returns its offset, for endFrame once the body has been put
+   public static int beginFrame(ByteBuffer buffer, short templateId, long correlationId) {
+      int frameOffset = buffer.position();
+      buffer.putInt(0)
+            .putShort(templateId)
+            .putLong(correlationId);
+      return frameOffset;
+   }
+
+   public static void endFrame(ByteBuffer buffer, int frameOffset) {
+      buffer.putInt(frameOffset, buffer.position() - frameOffset - LENGTH_FIELD_BYTES);
+   }
+
+   public static void putAscii(ByteBuffer buffer, String value) {
+      int length = value.length();
+      if (length > MAX_STRING_BYTES) {
+         throw new IllegalArgumentException("String is longer than " + MAX_STRING_BYTES + " characters: " + value);
+      }
+      buffer.put((byte) length);
+      for (int i = 0; i < length; i++) {
+         buffer.put((byte) value.charAt(i));
+      }
+   }
+
+   public static void encodeOpenPosition(ByteBuffer buffer, long correlationId, String clientId, int marketIndex, int buySize) {
+      int frameOffset = beginFrame(buffer, OPEN_POSITION, correlationId);
+      putAscii(buffer, clientId);
+      buffer.putInt(marketIndex)
+            .putInt(buySize);
+      endFrame(buffer, frameOffset);
+   }
+
+   public static void encodeClosePosition(ByteBuffer buffer, long correlationId, String clientId, String openPositionId) {
+      int frameOffset = beginFrame(buffer, CLOSE_POSITION, correlationId);
+      putAscii(buffer, clientId);
+      putAscii(buffer, openPositionId);
+      endFrame(buffer, frameOffset);
+   }
+
+   public static void encodeQuoteRequest(ByteBuffer buffer, long correlationId, int marketIndex) {
+      int frameOffset = beginFrame(buffer, QUOTE_REQUEST, correlationId);
+      buffer.putInt(marketIndex);
+      endFrame(buffer, frameOffset);
+   }
+}
@@ -0,0 +1,203 @@
+package com.iggroup.universityworkshopmw.integration.binary;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+import static com.iggroup.universityworkshopmw.integration.binary.BinaryMessageCodec.HEADER_BYTES;
+import static com.iggroup.universityworkshopmw.integration.binary.BinaryMessageCodec.LENGTH_FIELD_BYTES;
+import static com.iggroup.universityworkshopmw.integration.binary.BinaryMessageCodec.MAX_RESPONSE_BYTES;
+import static com.iggroup.universityworkshopmw.integration.binary.BinaryMessageCodec.frameLength;
+
+// Serves BinaryMessageCodec frames over TCP alongside the REST API. A single selector thread reads each connection
+// into its own direct buffer, handles every complete frame in place and writes the responses back in one go, so
+// clients can pipeline requests and pay for one syscall per batch rather than one HTTP exchange per request.
+// Requests are handled on the selector thread rather than handed to workers, which keeps responses in request order
+// without queueing, but means a request waiting on a client lock holds up every connection until it gets it
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "binaryProtocol.enabled", havingValue = "true")
+public class BinaryProtocolServer {
+
+   private final BinaryRequestHandler requestHandler;
+   private final int port;
+   private final int bufferSize;
+   private Selector selector;
+   private ServerSocketChannel serverChannel;
+   private Thread selectorThread;
+   private volatile boolean running;
+
+   public BinaryProtocolServer(BinaryRequestHandler requestHandler,
+                               @Value("${binaryProtocol.port:8086}") int port,
+                               @Value("${binaryProtocol.bufferSize:65536}") int bufferSize) {
+      if (bufferSize < 2 * MAX_RESPONSE_BYTES) {
+         throw new IllegalArgumentException("binaryProtocol.bufferSize must be at least " + 2 * MAX_RESPONSE_BYTES);
+      }
+      this.requestHandler = requestHandler;
+      this.port = port;
+      this.bufferSize = bufferSize;
+   }
+
+   @PostConstruct
+   public void start() throws IOException {
+      selector = Selector.open();
+      serverChannel = ServerSocketChannel.open();
+      serverChannel.bind(new InetSocketAddress(port));
+      serverChannel.configureBlocking(false);
+      serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+      running = true;
+      selectorThread = new Thread(this::runSelector, "binary-protocol-selector");
+      selectorThread.setDaemon(true);
+      selectorThread.start();
+      log.info("Binary protocol listening on port={}", getPort());
+   }
+
+   @PreDestroy
+   public void stop() throws IOException, InterruptedException {
+      running = false;
+      selector.wakeup();
+      selectorThread.join();
+      for (SelectionKey key : selector.keys()) {
+         key.channel().close();
+      }
+      selector.close();
+   }
+
+   // The bound port, which differs from the configured one when that is 0
+   public int getPort() {
+      return serverChannel.socket().getLocalPort();
+   }
+
+   private void runSelector() {
+      while (running) {
+         try {
+            selector.select();
+            Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+            while (selectedKeys.hasNext()) {
+               SelectionKey key = selectedKeys.next();
+               selectedKeys.remove();
+               if (!key.isValid()) {
+                  continue;
+               }
+               if (key.isAcceptable()) {
+                  accept();
+               } else {
+                  service(key);
+               }
+            }
+         } catch (ClosedSelectorException e) {
+            return;
+         } catch (IOException e) {
+            log.error("Binary protocol selector failed, exceptionMessage={}", e.getMessage(), e);
+         }
+      }
+   }
+
+   private void accept() throws IOException {
+      SocketChannel channel = serverChannel.accept();
+      if (channel == null) {
+         return;
+      }
+      channel.configureBlocking(false);
+      channel.socket().setTcpNoDelay(true);
+      channel.register(selector, SelectionKey.OP_READ, new Connection(bufferSize));
+   }
+
+   private void service(SelectionKey key) {
+      SocketChannel channel = (SocketChannel) key.channel();
+      Connection connection = (Connection) key.attachment();
+      try {
+         if (key.isWritable() && !flush(channel, connection)) {
+            return;
+         }
+         if (key.isReadable() && channel.read(connection.in) < 0) {
+            close(key);
+            return;
+         }
+         boolean flushed;
+         do {
+            if (!handleFrames(connection)) {
+               log.info("Closing binary protocol connection={} after an invalid frame", channel.getRemoteAddress());
+               close(key);
+               return;
+            }
+            flushed = flush(channel, connection);
+         } while (flushed && hasCompleteFrame(connection.in));
+         key.interestOps(flushed ? SelectionKey.OP_READ : SelectionKey.OP_WRITE);
+      } catch (IOException e) {
+         close(key);
+      }
+   }
+
+   // Handles the complete frames at the front of the input buffer for as long as there is room for their responses.
+   // Returns false if a frame declares a length that can never fit the buffer
+   private boolean handleFrames(Connection connection) {
+      ByteBuffer in = connection.in;
+      ByteBuffer out = connection.out;
+      int frameOffset = 0;
+      while (in.position() - frameOffset >= LENGTH_FIELD_BYTES && out.remaining() >= MAX_RESPONSE_BYTES) {
+         int frameLength = frameLength(in, frameOffset);
+         if (frameLength < HEADER_BYTES - LENGTH_FIELD_BYTES || frameLength > in.capacity() - LENGTH_FIELD_BYTES) {
+            return false;
+         }
+         if (in.position() - frameOffset < LENGTH_FIELD_BYTES + frameLength) {
+            break;
+         }
+         requestHandler.handle(in, frameOffset, out);
+         frameOffset += LENGTH_FIELD_BYTES + frameLength;
+      }
+
+      in.limit(in.position()).position(frameOffset);
+      in.compact();
+      return true;
+   }
+
+   // Frames left behind when the output buffer filled up, which no read will arrive to prompt
+   private boolean hasCompleteFrame(ByteBuffer in) {
+      return in.position() >= LENGTH_FIELD_BYTES && in.position() >= LENGTH_FIELD_BYTES + frameLength(in, 0);
+   }
+
+   // Returns true once everything handled so far has been written
+   private boolean flush(SocketChannel channel, Connection connection) throws IOException {
+      ByteBuffer out = connection.out;
+      out.flip();
+      channel.write(out);
+      boolean flushed = !out.hasRemaining();
+      out.compact();
+      return flushed;
+   }
+
+   private void close(SelectionKey key) {
+      key.cancel();
+      try {
+         key.channel().close();
+      } catch (IOException e) {
+         log.debug("Could not close binary protocol connection, exceptionMessage={}", e.getMessage());
+      }
+   }
+
+   private static class Connection {
+      private final ByteBuffer in;
+      private final ByteBuffer out;
+
+      private Connection(int bufferSize) {
+         in = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+         out = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+      }
+   }
+}
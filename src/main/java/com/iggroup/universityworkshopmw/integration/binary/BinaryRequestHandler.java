@@ -0,0 +1,141 @@
+package com.iggroup.universityworkshopmw.integration.binary;
+
+import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
+import com.iggroup.universityworkshopmw.domain.exceptions.InsufficientFundsException;
+import com.iggroup.universityworkshopmw.domain.exceptions.MissingBuySizeException;
+import com.iggroup.universityworkshopmw.domain.exceptions.NoAvailableDataException;
+import com.iggroup.universityworkshopmw.domain.exceptions.NoMarketPriceAvailableException;
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import com.iggroup.universityworkshopmw.domain.services.OpenPositionsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+
+import static com.iggroup.universityworkshopmw.integration.binary.BinaryMessageCodec.*;
+
+// Decodes one request frame, calls the services directly and writes its response frame. Every field is checked to lie
+// within the frame before it is read, so a short frame or an overlong string is rejected rather than read into the
+// frames that follow it.
+// Runs on the server's selector thread. The services only wait on client locks, which are held briefly, but any such
+// wait holds up every connection
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "binaryProtocol.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class BinaryRequestHandler {
+
+   private final OpenPositionsService openPositionsService;
+   private final MarketDataCache marketDataCache;
+
+   public void handle(ByteBuffer in, int frameOffset, ByteBuffer out) {
+      long correlationId = correlationId(in, frameOffset);
+      int bodyOffset = bodyOffset(frameOffset);
+      int frameEnd = frameEnd(in, frameOffset);
+
+      try {
+         switch (templateId(in, frameOffset)) {
+            case OPEN_POSITION:
+               openPosition(in, bodyOffset, frameEnd, out, correlationId);
+               break;
+            case CLOSE_POSITION:
+               closePosition(in, bodyOffset, frameEnd, out, correlationId);
+               break;
+            case QUOTE_REQUEST:
+               quote(in, bodyOffset, frameEnd, out, correlationId);
+               break;
+            default:
+               reject(out, correlationId, INVALID_REQUEST);
+         }
+      } catch (InsufficientFundsException e) {
+         reject(out, correlationId, INSUFFICIENT_FUNDS);
+      } catch (NoAvailableDataException e) {
+         reject(out, correlationId, NO_AVAILABLE_DATA);
+      } catch (NoMarketPriceAvailableException e) {
+         reject(out, correlationId, NO_MARKET_PRICE);
+      } catch (MissingBuySizeException e) {
+         reject(out, correlationId, INVALID_REQUEST);
+      } catch (RuntimeException e) {
+         log.info("Could not handle binary request with correlationId={}, ", correlationId, e);
+         reject(out, correlationId, INTERNAL_ERROR);
+      }
+   }
+
+   private void openPosition(ByteBuffer in, int offset, int frameEnd, ByteBuffer out, long correlationId) throws InsufficientFundsException, NoAvailableDataException, NoMarketPriceAvailableException, MissingBuySizeException {
+      if (!asciiFits(in, offset, frameEnd) || offset + asciiLength(in, offset) + 2 * Integer.BYTES != frameEnd) {
+         reject(out, correlationId, MALFORMED_FRAME);
+         return;
+      }
+      String clientId = getAscii(in, offset);
+      offset += asciiLength(in, offset);
+      int marketIndex = in.getInt(offset);
+      int buySize = in.getInt(offset + Integer.BYTES);
+      if (!isMarketIndex(marketIndex)) {
+         reject(out, correlationId, INVALID_REQUEST);
+         return;
+      }
+
+      OpenPosition openPosition = openPositionsService.addOpenPositionForClient(clientId, OpenPosition.builder()
+            .marketId(marketDataCache.getMarketId(marketIndex))
+            .buySize(buySize)
+            .build());
+
+      int frameOffset = beginFrame(out, POSITION_OPENED, correlationId);
+      putAscii(out, openPosition.getId());
+      out.putDouble(openPosition.getOpeningPrice());
+      endFrame(out, frameOffset);
+   }
+
+   private void closePosition(ByteBuffer in, int offset, int frameEnd, ByteBuffer out, long correlationId) throws NoAvailableDataException, NoMarketPriceAvailableException {
+      if (!isClosePositionBody(in, offset, frameEnd)) {
+         reject(out, correlationId, MALFORMED_FRAME);
+         return;
+      }
+      String clientId = getAscii(in, offset);
+      String openPositionId = getAscii(in, offset + asciiLength(in, offset));
+
+      double closingProfitAndLoss = openPositionsService.closeOpenPosition(clientId, openPositionId);
+
+      int frameOffset = beginFrame(out, POSITION_CLOSED, correlationId);
+      out.putDouble(closingProfitAndLoss);
+      endFrame(out, frameOffset);
+   }
+
+   private void quote(ByteBuffer in, int offset, int frameEnd, ByteBuffer out, long correlationId) {
+      if (offset + Integer.BYTES != frameEnd) {
+         reject(out, correlationId, MALFORMED_FRAME);
+         return;
+      }
+      int marketIndex = in.getInt(offset);
+      if (!isMarketIndex(marketIndex)) {
+         reject(out, correlationId, INVALID_REQUEST);
+         return;
+      }
+
+      int frameOffset = beginFrame(out, QUOTE, correlationId);
+      out.putInt(marketIndex)
+            .putDouble(marketDataCache.getCurrentPrice(marketIndex));
+      endFrame(out, frameOffset);
+   }
+
+   // Two strings that exactly fill the frame
+   private boolean isClosePositionBody(ByteBuffer in, int offset, int frameEnd) {
+      if (!asciiFits(in, offset, frameEnd)) {
+         return false;
+      }
+      int openPositionIdOffset = offset + asciiLength(in, offset);
+      return asciiFits(in, openPositionIdOffset, frameEnd) && openPositionIdOffset + asciiLength(in, openPositionIdOffset) == frameEnd;
+   }
+
+   private boolean isMarketIndex(int marketIndex) {
+      return marketIndex >= 0 && marketIndex < marketDataCache.size();
+   }
+
+   private void reject(ByteBuffer out, long correlationId, short reason) {
+      int frameOffset = beginFrame(out, REJECT, correlationId);
+      out.putShort(reason);
+      endFrame(out, frameOffset);
+   }
+}
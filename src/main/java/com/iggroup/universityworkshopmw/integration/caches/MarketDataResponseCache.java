@@ -0,0 +1,40 @@
+package com.iggroup.universityworkshopmw.integration.caches;
+
+import com.iggroup.universityworkshopmw.domain.model.MarketDataSnapshot;
+import com.iggroup.universityworkshopmw.integration.transformers.DomainJsonWriter;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+// Serialises each market data snapshot once, however many clients poll for it. The ETag includes the time this cache
+// was created, so a restarted server never reuses a version number from before the restart
+@Component
+public class MarketDataResponseCache {
+
+   private final String etagPrefix = "\"" + Long.toString(System.currentTimeMillis(), Character.MAX_RADIX) + "-";
+   private volatile MarketDataResponse latestResponse;
+
+   public String getEtag(MarketDataSnapshot snapshot) {
+      return etagPrefix + snapshot.getVersion() + "\"";
+   }
+
+   public MarketDataResponse getResponse(MarketDataSnapshot snapshot) throws IOException {
+      MarketDataResponse response = latestResponse;
+      if (response == null || response.version != snapshot.getVersion()) {
+         byte[] body = DomainJsonWriter.writeMarkets(snapshot.getMarkets());
+         response = new MarketDataResponse(snapshot.getVersion(), getEtag(snapshot), body);
+         latestResponse = response;
+      }
+      return response;
+   }
+
+   @Getter
+   @RequiredArgsConstructor
+   public static class MarketDataResponse {
+      private final long version;
+      private final String etag;
+      private final byte[] body;
+   }
+}
@@ -0,0 +1,61 @@
+package com.iggroup.universityworkshopmw.integration.controllers;
+
+import com.iggroup.universityworkshopmw.integration.dto.ClientDto;
+import com.iggroup.universityworkshopmw.integration.streaming.ClientExporter;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.TEXT_PLAIN;
+
+@Api(value = "/client", description = "Operations relating to the client")
+@RestController
+@RequestMapping("/client")
+@RequiredArgsConstructor
+public class ClientExportController {
+
+   static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+   private final ClientExporter clientExporter;
+
+   @ApiOperation(value = "Export clients",
+         notes = "Streams clients in client id order as newline delimited JSON, one client per line. " +
+               "Pass the id on the last line as 'after' to carry on from where a previous export stopped",
+         response = ClientDto.class,
+         responseContainer = "List")
+   @ApiResponses(value = {
+         @ApiResponse(code = HTTP_OK,
+               message = "Successfully started the export"),
+         @ApiResponse(code = HTTP_BAD_REQUEST,
+               message = "Couldn't recognise request")
+   })
+   @GetMapping("/export")
+   @CrossOrigin
+   public ResponseEntity<StreamingResponseBody> exportClients(@RequestParam(value = "after", required = false) String afterClientId,
+                                                              @RequestParam(value = "limit", defaultValue = "" + Integer.MAX_VALUE) int limit) {
+      if (limit <= 0) {
+         return ResponseEntity.status(BAD_REQUEST)
+               .contentType(TEXT_PLAIN)
+               .body(outputStream -> outputStream.write("'limit' must be positive".getBytes(UTF_8)));
+      }
+      return ResponseEntity.status(OK)
+            .contentType(APPLICATION_NDJSON)
+            .body(clientExporter.export(afterClientId, limit));
+   }
+
+}
@@ -1,28 +1,47 @@
 package com.iggroup.universityworkshopmw.integration.controllers;
 
-import com.iggroup.universityworkshopmw.domain.model.Market;
+import com.iggroup.universityworkshopmw.domain.enums.BarResolution;
+import com.iggroup.universityworkshopmw.domain.exceptions.NoAvailableDataException;
+import com.iggroup.universityworkshopmw.domain.model.MarketDataSnapshot;
 import com.iggroup.universityworkshopmw.domain.services.MarketDataService;
+import com.iggroup.universityworkshopmw.integration.caches.MarketDataResponseCache;
+import com.iggroup.universityworkshopmw.integration.caches.MarketDataResponseCache.MarketDataResponse;
 import com.iggroup.universityworkshopmw.integration.dto.MarketDto;
-import com.iggroup.universityworkshopmw.integration.transformers.MarketDataTransformer;
+import com.iggroup.universityworkshopmw.integration.dto.PriceBarDto;
+import com.iggroup.universityworkshopmw.integration.dto.PriceTickDto;
+import com.iggroup.universityworkshopmw.integration.streaming.MarketDataStreamer;
+import com.iggroup.universityworkshopmw.integration.transformers.PriceHistoryTransformer;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
 import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
 import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
+import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.net.HttpURLConnection.HTTP_OK;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8;
 
 @Api(value = "/marketData", description = "Operations relating to market data")
 @Slf4j
@@ -32,12 +51,18 @@ import static org.springframework.http.HttpStatus.OK;
 public class MarketDataController {
 
    private final MarketDataService marketDataService;
+   private final MarketDataStreamer marketDataStreamer;
+   private final MarketDataResponseCache marketDataResponseCache;
 
    @ApiOperation(value = "Get all market data",
-         notes = "Returns a list of markets")
+         notes = "Returns a list of markets, tagged with an ETag that changes with every price update",
+         response = MarketDto.class,
+         responseContainer = "List")
    @ApiResponses(value = {
          @ApiResponse(code = HTTP_OK,
                message = "Successfully retrieved market data"),
+         @ApiResponse(code = HTTP_NOT_MODIFIED,
+               message = "Market data has not changed since the ETag in If-None-Match"),
          @ApiResponse(code = HTTP_BAD_REQUEST,
                message = "Couldn't recognise request"),
          @ApiResponse(code = HTTP_INTERNAL_ERROR,
@@ -45,11 +70,23 @@ public class MarketDataController {
    })
    @GetMapping("/allMarkets")
    @CrossOrigin
-   public ResponseEntity<?> getAllMarketData() {
+   public ResponseEntity<?> getAllMarketData(@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
       try {
-         List<Market> listOfMarkets = marketDataService.getAllMarkets();
-         List<MarketDto> responseBody = MarketDataTransformer.transform(listOfMarkets);
-         return new ResponseEntity<>(responseBody, OK);
+         MarketDataSnapshot snapshot = marketDataService.getMarketDataSnapshot();
+         String etag = marketDataResponseCache.getEtag(snapshot);
+         if (matchesEtag(ifNoneMatch, etag)) {
+            return ResponseEntity.status(NOT_MODIFIED)
+                  .eTag(etag)
+                  .cacheControl(CacheControl.noCache())
+                  .build();
+         }
+
+         MarketDataResponse response = marketDataResponseCache.getResponse(snapshot);
+         return ResponseEntity.status(OK)
+               .eTag(response.getEtag())
+               .cacheControl(CacheControl.noCache())
+               .contentType(APPLICATION_JSON_UTF8)
+               .body(response.getBody());
 
       } catch (Exception e) {
          log.info("Exception when retrieving all market data, exceptionMessage=", e);
@@ -57,4 +94,101 @@ public class MarketDataController {
       }
    }
 
+   @ApiOperation(value = "Get price ticks for a market",
+         notes = "Returns the recorded ticks for a market with timestamps from 'from' (inclusive) to 'to' (exclusive), in epoch millis",
+         response = PriceTickDto.class,
+         responseContainer = "List")
+   @ApiResponses(value = {
+         @ApiResponse(code = HTTP_OK,
+               message = "Successfully retrieved price ticks"),
+         @ApiResponse(code = HTTP_BAD_REQUEST,
+               message = "Couldn't recognise request"),
+         @ApiResponse(code = HTTP_NOT_FOUND,
+               message = "Couldn't find price history for market"),
+         @ApiResponse(code = HTTP_INTERNAL_ERROR,
+               message = "Couldn't get price ticks")
+   })
+   @GetMapping("/{marketId}/ticks")
+   @CrossOrigin
+   public ResponseEntity<?> getPriceTicks(@PathVariable("marketId") String marketId,
+                                          @RequestParam(value = "from", defaultValue = "0") long from,
+                                          @RequestParam(value = "to", defaultValue = "" + Long.MAX_VALUE) long to) {
+      if (from > to) {
+         return new ResponseEntity<>("'from' must not be after 'to'", BAD_REQUEST);
+      }
+      try {
+         List<PriceTickDto> responseBody = PriceHistoryTransformer.transformTicks(marketDataService.getPriceTicks(marketId, from, to));
+         return new ResponseEntity<>(responseBody, OK);
+      } catch (NoAvailableDataException e) {
+         log.info("No price history for marketId={}, ", marketId, e);
+         return new ResponseEntity<>("No price history was available for market: " + marketId, NOT_FOUND);
+      } catch (Exception e) {
+         log.info("Exception when retrieving price ticks for marketId={}, ", marketId, e);
+         return new ResponseEntity<>("Something went wrong when retrieving price ticks", INTERNAL_SERVER_ERROR);
+      }
+   }
+
+   @ApiOperation(value = "Get OHLC price bars for a market",
+         notes = "Returns open, high, low and close bars at the given resolution for bars overlapping 'from' (inclusive) to 'to' (exclusive), in epoch millis. " +
+               "The newest bar is still forming",
+         response = PriceBarDto.class,
+         responseContainer = "List")
+   @ApiResponses(value = {
+         @ApiResponse(code = HTTP_OK,
+               message = "Successfully retrieved price bars"),
+         @ApiResponse(code = HTTP_BAD_REQUEST,
+               message = "Couldn't recognise request"),
+         @ApiResponse(code = HTTP_NOT_FOUND,
+               message = "Couldn't find price history for market"),
+         @ApiResponse(code = HTTP_INTERNAL_ERROR,
+               message = "Couldn't get price bars")
+   })
+   @GetMapping("/{marketId}/bars")
+   @CrossOrigin
+   public ResponseEntity<?> getPriceBars(@PathVariable("marketId") String marketId,
+                                         @RequestParam(value = "resolution", defaultValue = "ONE_MINUTE") BarResolution resolution,
+                                         @RequestParam(value = "from", defaultValue = "0") long from,
+                                         @RequestParam(value = "to", defaultValue = "" + Long.MAX_VALUE) long to) {
+      if (from > to) {
+         return new ResponseEntity<>("'from' must not be after 'to'", BAD_REQUEST);
+      }
+      try {
+         List<PriceBarDto> responseBody = PriceHistoryTransformer.transformBars(marketDataService.getPriceBars(marketId, resolution, from, to));
+         return new ResponseEntity<>(responseBody, OK);
+      } catch (NoAvailableDataException e) {
+         log.info("No price history for marketId={}, ", marketId, e);
+         return new ResponseEntity<>("No price history was available for market: " + marketId, NOT_FOUND);
+      } catch (Exception e) {
+         log.info("Exception when retrieving price bars for marketId={}, ", marketId, e);
+         return new ResponseEntity<>("Something went wrong when retrieving price bars", INTERNAL_SERVER_ERROR);
+      }
+   }
+
+   @ApiOperation(value = "Stream market data",
+         notes = "Streams server-sent events of market data, starting with all markets then only the markets changed by each price update")
+   @ApiResponses(value = {
+         @ApiResponse(code = HTTP_OK,
+               message = "Successfully subscribed to market data"),
+         @ApiResponse(code = HTTP_BAD_REQUEST,
+               message = "Couldn't recognise request")
+   })
+   @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+   @CrossOrigin
+   public SseEmitter streamMarketData() {
+      return marketDataStreamer.subscribe();
+   }
+
+   private boolean matchesEtag(String ifNoneMatch, String etag) {
+      if (ifNoneMatch == null) {
+         return false;
+      }
+      for (String candidate : ifNoneMatch.split(",")) {
+         String trimmed = candidate.trim();
+         if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+            return true;
+         }
+      }
+      return false;
+   }
+
 }
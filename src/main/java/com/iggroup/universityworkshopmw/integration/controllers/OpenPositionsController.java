@@ -5,10 +5,13 @@ import com.iggroup.universityworkshopmw.domain.exceptions.MissingBuySizeExceptio
 import com.iggroup.universityworkshopmw.domain.exceptions.NoAvailableDataException;
 import com.iggroup.universityworkshopmw.domain.exceptions.NoMarketPriceAvailableException;
 import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import com.iggroup.universityworkshopmw.domain.model.OpenPositionResult;
 import com.iggroup.universityworkshopmw.domain.services.OpenPositionsService;
 import com.iggroup.universityworkshopmw.integration.dto.AddOpenPositionDto;
 import com.iggroup.universityworkshopmw.integration.dto.OpenPositionDto;
-import com.iggroup.universityworkshopmw.integration.transformers.OpenPositionDtoTransformer;
+import com.iggroup.universityworkshopmw.integration.dto.OpenPositionResultDto;
+import com.iggroup.universityworkshopmw.integration.transformers.DomainJsonWriter;
+import com.iggroup.universityworkshopmw.integration.transformers.OpenPositionResultDtoTransformer;
 import com.iggroup.universityworkshopmw.integration.transformers.OpenPositionTransformer;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -31,6 +34,7 @@ import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8;
 
 @Api(value = "/openPositions", description = "Operations relating to open positions")
 @Slf4j
@@ -59,9 +63,11 @@ public class OpenPositionsController {
    public ResponseEntity<?> getOpenPositions(@PathVariable("clientId") String clientId) {
       try {
          List<OpenPosition> openPositions = openPositionsService.getOpenPositionsForClient(clientId);
-         List<OpenPositionDto> responseBody = OpenPositionDtoTransformer.transform(openPositions);
+         byte[] responseBody = DomainJsonWriter.writeOpenPositions(openPositions);
 
-         return new ResponseEntity<>(responseBody, OK);
+         return ResponseEntity.status(OK)
+               .contentType(APPLICATION_JSON_UTF8)
+               .body(responseBody);
       } catch (NoAvailableDataException e) {
          log.info("No open positions for client={}, ", clientId, e);
          return new ResponseEntity<>("No open positions were available for client: " + clientId, NOT_FOUND);
@@ -113,6 +119,44 @@ public class OpenPositionsController {
       }
    }
 
+   @ApiOperation(value = "Create a batch of open positions",
+         notes = "Creates several positions for a given client in one request. Responds with a result per requested position, " +
+               "in request order. Positions missing a buy size or market price are rejected individually; the rest are " +
+               "opened together, or none are opened if the client cannot fund them all",
+         response = OpenPositionResultDto.class,
+         responseContainer = "List")
+   @ApiResponses(value = {
+         @ApiResponse(code = HTTP_OK,
+               message = "Processed batch of positions"),
+         @ApiResponse(code = HTTP_BAD_REQUEST,
+               message = "Couldn't recognise request, or client lacked funds for the batch"),
+         @ApiResponse(code = HTTP_NOT_FOUND,
+               message = "Couldn't find data needed to open positions"),
+         @ApiResponse(code = HTTP_INTERNAL_ERROR,
+               message = "Couldn't open positions")
+   })
+   @CrossOrigin
+   @PostMapping("/{clientId}/batch")
+   public ResponseEntity<?> addOpenPositions(@PathVariable("clientId") String clientId,
+                                             @RequestBody List<AddOpenPositionDto> openPositionDtos) {
+      try {
+         List<OpenPosition> openPositions = OpenPositionTransformer.transform(openPositionDtos);
+         List<OpenPositionResult> results = openPositionsService.addOpenPositionsForClient(clientId, openPositions);
+         List<OpenPositionResultDto> responseBody = OpenPositionResultDtoTransformer.transform(results);
+
+         return new ResponseEntity<>(responseBody, OK);
+      } catch (InsufficientFundsException e) {
+         log.info("Client={} lacked sufficient funds to trade batch, ", clientId, e);
+         return new ResponseEntity<>("Client: " + clientId + " lacked sufficient funds to trade", BAD_REQUEST);
+      } catch (NoAvailableDataException e) {
+         log.info("Could not open positions for client={}, ", clientId, e);
+         return new ResponseEntity<>("Could not open positions for clientId: " + clientId, NOT_FOUND);
+      } catch (Exception e) {
+         log.info("Could not add open positions for client={}, ", clientId, e);
+         return new ResponseEntity<>("Something went wrong when opening positions", INTERNAL_SERVER_ERROR);
+      }
+   }
+
    @ApiOperation(value = "Delete an open position",
          notes = "Deletes an open position for a given client. Responds with closing profit and loss",
          response = Double.class)
@@ -0,0 +1,18 @@
+package com.iggroup.universityworkshopmw.integration.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OpenPositionResultDto {
+   private String marketId;
+   private Integer buySize;
+   private String openPositionId;
+   private Double openingPrice;
+   private String error;
+}
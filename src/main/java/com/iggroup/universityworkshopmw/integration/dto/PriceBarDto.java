@@ -0,0 +1,15 @@
+package com.iggroup.universityworkshopmw.integration.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class PriceBarDto {
+   private long startTime;
+   private double open;
+   private double high;
+   private double low;
+   private double close;
+   private int tickCount;
+}
@@ -0,0 +1,11 @@
+package com.iggroup.universityworkshopmw.integration.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class PriceTickDto {
+   private long timestamp;
+   private double price;
+}
@@ -0,0 +1,57 @@
+package com.iggroup.universityworkshopmw.integration.streaming;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import com.iggroup.universityworkshopmw.domain.services.ClientService;
+import com.iggroup.universityworkshopmw.integration.transformers.DomainJsonWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+// Writes clients as newline delimited JSON, one client per line in the ClientDto layout and in client id order. The last
+// client id is read when the export starts and paging stops there, so the export covers the clients that existed then
+// and leaves clients stored part way through for the next export. Clients are fetched and written a page at a time,
+// each as it stood when its page was fetched, so however many clients there are only one page is held in memory. A
+// caller who stops part way through can carry on from the id on the last line they read
+@Component
+public class ClientExporter {
+
+   private final ClientService clientService;
+   private final int pageSize;
+
+   public ClientExporter(ClientService clientService,
+                         @Value("${clientExport.pageSize:500}") int pageSize) {
+      this.clientService = clientService;
+      this.pageSize = pageSize;
+   }
+
+   // Exports up to limit clients after afterClientId, or from the first client when it is null
+   public StreamingResponseBody export(String afterClientId, int limit) {
+      return outputStream -> {
+         JsonGenerator generator = DomainJsonWriter.createGenerator(outputStream);
+         generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+         generator.setRootValueSeparator(null);
+
+         String lastClientId = clientService.getLastClientId();
+         String cursor = afterClientId;
+         int remaining = lastClientId == null ? 0 : limit;
+         while (remaining > 0) {
+            List<Client> page = clientService.getClientPage(cursor, lastClientId, Math.min(pageSize, remaining));
+            for (Client client : page) {
+               DomainJsonWriter.writeClient(generator, client);
+               generator.writeRaw('\n');
+            }
+            generator.flush();
+
+            if (page.size() < Math.min(pageSize, remaining)) {
+               break;
+            }
+            cursor = page.get(page.size() - 1).getId();
+            remaining -= page.size();
+         }
+         generator.close();
+      };
+   }
+}
@@ -0,0 +1,106 @@
+package com.iggroup.universityworkshopmw.integration.streaming;
+
+import com.iggroup.universityworkshopmw.domain.events.MarketDataUpdatedEvent;
+import com.iggroup.universityworkshopmw.domain.services.MarketDataService;
+import com.iggroup.universityworkshopmw.integration.dto.MarketDto;
+import com.iggroup.universityworkshopmw.integration.transformers.MarketDataTransformer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Slf4j
+@Component
+public class MarketDataStreamer {
+
+   private static final String EVENT_NAME = "marketData";
+
+   private final MarketDataService marketDataService;
+   private final ExecutorService sendExecutor;
+   private final long emitterTimeoutMillis;
+   private final List<MarketDataSubscriber> subscribers = new CopyOnWriteArrayList<>();
+
+   @Autowired
+   public MarketDataStreamer(MarketDataService marketDataService,
+                             @Value("${marketData.stream.senderThreads:2}") int senderThreads,
+                             @Value("${marketData.stream.timeoutMillis:1800000}") long emitterTimeoutMillis) {
+      this(marketDataService, Executors.newFixedThreadPool(senderThreads), emitterTimeoutMillis);
+   }
+
+   MarketDataStreamer(MarketDataService marketDataService, ExecutorService sendExecutor, long emitterTimeoutMillis) {
+      this.marketDataService = marketDataService;
+      this.sendExecutor = sendExecutor;
+      this.emitterTimeoutMillis = emitterTimeoutMillis;
+   }
+
+   public SseEmitter subscribe() {
+      return subscribe(new SseEmitter(emitterTimeoutMillis));
+   }
+
+   SseEmitter subscribe(SseEmitter emitter) {
+      MarketDataSubscriber subscriber = new MarketDataSubscriber(emitter);
+      emitter.onCompletion(() -> subscribers.remove(subscriber));
+      emitter.onTimeout(() -> subscribers.remove(subscriber));
+      subscribers.add(subscriber);
+
+      offer(subscriber, MarketDataTransformer.transform(marketDataService.getAllMarkets()));
+      return emitter;
+   }
+
+   @EventListener
+   public void onMarketDataUpdated(MarketDataUpdatedEvent event) {
+      if (subscribers.isEmpty()) {
+         return;
+      }
+
+      List<MarketDto> updatedMarkets = MarketDataTransformer.transform(event.getUpdatedMarkets());
+      subscribers.forEach(subscriber -> offer(subscriber, updatedMarkets));
+   }
+
+   int getSubscriberCount() {
+      return subscribers.size();
+   }
+
+   @PreDestroy
+   public void shutdown() {
+      sendExecutor.shutdownNow();
+      subscribers.forEach(subscriber -> subscriber.getEmitter().complete());
+   }
+
+   private void offer(MarketDataSubscriber subscriber, List<MarketDto> updatedMarkets) {
+      subscriber.offer(updatedMarkets);
+      if (subscriber.tryScheduleSend()) {
+         sendExecutor.execute(() -> sendPendingUpdates(subscriber));
+      }
+   }
+
+   private void sendPendingUpdates(MarketDataSubscriber subscriber) {
+      do {
+         try {
+            List<MarketDto> pendingUpdates = subscriber.drainPendingUpdates();
+            if (!pendingUpdates.isEmpty()) {
+               subscriber.getEmitter().send(SseEmitter.event()
+                     .name(EVENT_NAME)
+                     .data(pendingUpdates, MediaType.APPLICATION_JSON));
+            }
+         } catch (Exception e) {
+            log.info("Dropping market data subscriber after failed send, exceptionMessage={}", e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.getEmitter().completeWithError(e);
+            return;
+         } finally {
+            subscriber.sendFinished();
+         }
+         // An update offered while the last send was in flight still needs sending
+      } while (subscriber.hasPendingUpdates() && subscriber.tryScheduleSend());
+   }
+}
@@ -0,0 +1,44 @@
+package com.iggroup.universityworkshopmw.integration.streaming;
+
+import com.iggroup.universityworkshopmw.integration.dto.MarketDto;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@RequiredArgsConstructor
+class MarketDataSubscriber {
+
+   @Getter
+   private final SseEmitter emitter;
+   // Latest unsent update per marketId, so a slow subscriber only ever receives the newest price of each market
+   private final Map<String, MarketDto> pendingUpdates = new LinkedHashMap<>();
+   private final AtomicBoolean sendScheduled = new AtomicBoolean();
+
+   synchronized void offer(List<MarketDto> updatedMarkets) {
+      updatedMarkets.forEach(market -> pendingUpdates.put(market.getId(), market));
+   }
+
+   synchronized List<MarketDto> drainPendingUpdates() {
+      List<MarketDto> updates = new ArrayList<>(pendingUpdates.values());
+      pendingUpdates.clear();
+      return updates;
+   }
+
+   synchronized boolean hasPendingUpdates() {
+      return !pendingUpdates.isEmpty();
+   }
+
+   boolean tryScheduleSend() {
+      return sendScheduled.compareAndSet(false, true);
+   }
+
+   void sendFinished() {
+      sendScheduled.set(false);
+   }
+}
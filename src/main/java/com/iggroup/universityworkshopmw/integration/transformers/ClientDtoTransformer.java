@@ -3,9 +3,9 @@ package com.iggroup.universityworkshopmw.integration.transformers;
 import com.iggroup.universityworkshopmw.domain.model.Client;
 import com.iggroup.universityworkshopmw.integration.dto.ClientDto;
 
-import java.util.Map;
+import java.util.List;
 
-import static com.google.common.collect.Maps.newHashMap;
+import static java.util.stream.Collectors.toList;
 
 public class ClientDtoTransformer {
 
@@ -18,17 +18,10 @@ public class ClientDtoTransformer {
             .build();
    }
 
-   public static Map<String, ClientDto> transformAllClients(Map<String, Client> allClients) {
-      Map<String, ClientDto> allClientsTransformed = newHashMap();
-
-      allClients.keySet().stream()
-         .forEach(clientId -> {
-            Client client = allClients.get(clientId);
-            ClientDto clientDto = transform(client);
-            allClientsTransformed.put(clientId, clientDto);
-         });
-
-      return allClientsTransformed;
+   public static List<ClientDto> transform(List<Client> clients) {
+      return clients.stream()
+            .map(ClientDtoTransformer::transform)
+            .collect(toList());
    }
 
 }
@@ -0,0 +1,78 @@
+package com.iggroup.universityworkshopmw.integration.transformers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import com.iggroup.universityworkshopmw.domain.model.Market;
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+// Writes domain objects as the same JSON their DTOs serialise to, field by field through a JsonGenerator, so the
+// busiest responses are produced without building DTOs, boxing their numbers or having Jackson reflect over them.
+// Field names and order must be kept in step with MarketDto, OpenPositionDto and ClientDto
+public final class DomainJsonWriter {
+
+   private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+   private DomainJsonWriter() {
+   }
+
+   public static JsonGenerator createGenerator(OutputStream outputStream) throws IOException {
+      return JSON_FACTORY.createGenerator(outputStream);
+   }
+
+   public static byte[] writeMarkets(List<Market> markets) throws IOException {
+      ByteArrayBuilder byteArrayBuilder = new ByteArrayBuilder();
+      try (JsonGenerator generator = createGenerator(byteArrayBuilder)) {
+         generator.writeStartArray();
+         for (Market market : markets) {
+            writeMarket(generator, market);
+         }
+         generator.writeEndArray();
+      }
+      return byteArrayBuilder.toByteArray();
+   }
+
+   public static byte[] writeOpenPositions(List<OpenPosition> openPositions) throws IOException {
+      ByteArrayBuilder byteArrayBuilder = new ByteArrayBuilder();
+      try (JsonGenerator generator = createGenerator(byteArrayBuilder)) {
+         generator.writeStartArray();
+         for (OpenPosition openPosition : openPositions) {
+            writeOpenPosition(generator, openPosition);
+         }
+         generator.writeEndArray();
+      }
+      return byteArrayBuilder.toByteArray();
+   }
+
+   public static void writeMarket(JsonGenerator generator, Market market) throws IOException {
+      generator.writeStartObject();
+      generator.writeStringField("id", market.getId());
+      generator.writeStringField("marketName", market.getMarketName().getName());
+      generator.writeNumberField("currentPrice", market.getCurrentPrice());
+      generator.writeEndObject();
+   }
+
+   public static void writeOpenPosition(JsonGenerator generator, OpenPosition openPosition) throws IOException {
+      generator.writeStartObject();
+      generator.writeStringField("id", openPosition.getId());
+      generator.writeStringField("marketId", openPosition.getMarketId());
+      generator.writeNumberField("profitAndLoss", openPosition.getProfitAndLoss());
+      generator.writeNumberField("openingPrice", openPosition.getOpeningPrice());
+      generator.writeNumberField("buySize", openPosition.getBuySize());
+      generator.writeEndObject();
+   }
+
+   public static void writeClient(JsonGenerator generator, Client client) throws IOException {
+      generator.writeStartObject();
+      generator.writeStringField("id", client.getId());
+      generator.writeStringField("userName", client.getUserName());
+      generator.writeNumberField("availableFunds", client.getAvailableFunds());
+      generator.writeNumberField("runningProfitAndLoss", client.getRunningProfitAndLoss());
+      generator.writeEndObject();
+   }
+}
@@ -0,0 +1,30 @@
+package com.iggroup.universityworkshopmw.integration.transformers;
+
+import com.iggroup.universityworkshopmw.domain.model.OpenPositionResult;
+import com.iggroup.universityworkshopmw.integration.dto.OpenPositionResultDto;
+
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+public class OpenPositionResultDtoTransformer {
+
+   public static List<OpenPositionResultDto> transform(List<OpenPositionResult> openPositionResults) {
+      return openPositionResults.stream()
+            .map(OpenPositionResultDtoTransformer::transformDto)
+            .collect(toList());
+   }
+
+   private static OpenPositionResultDto transformDto(OpenPositionResult openPositionResult) {
+      OpenPositionResultDto.OpenPositionResultDtoBuilder builder = OpenPositionResultDto.builder()
+            .marketId(openPositionResult.getMarketId())
+            .buySize(openPositionResult.getBuySize())
+            .error(openPositionResult.getError());
+
+      if (openPositionResult.isOpened()) {
+         builder.openPositionId(openPositionResult.getOpenPosition().getId())
+               .openingPrice(openPositionResult.getOpenPosition().getOpeningPrice());
+      }
+      return builder.build();
+   }
+}
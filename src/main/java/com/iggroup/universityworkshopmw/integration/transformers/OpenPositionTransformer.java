@@ -3,12 +3,22 @@ package com.iggroup.universityworkshopmw.integration.transformers;
 import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
 import com.iggroup.universityworkshopmw.integration.dto.AddOpenPositionDto;
 
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
 public class OpenPositionTransformer {
 
    public static OpenPosition transform(AddOpenPositionDto openPositionDto) {
       return OpenPosition.builder()
             .marketId(openPositionDto.getMarketId())
-            .buySize(openPositionDto.getBuySize())
+            .buySize(openPositionDto.getBuySize() == null ? 0 : openPositionDto.getBuySize())
             .build();
    }
+
+   public static List<OpenPosition> transform(List<AddOpenPositionDto> openPositionDtos) {
+      return openPositionDtos.stream()
+            .map(OpenPositionTransformer::transform)
+            .collect(toList());
+   }
 }
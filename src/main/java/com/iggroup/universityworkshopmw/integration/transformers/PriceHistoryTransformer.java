@@ -0,0 +1,35 @@
+package com.iggroup.universityworkshopmw.integration.transformers;
+
+import com.iggroup.universityworkshopmw.domain.model.PriceBar;
+import com.iggroup.universityworkshopmw.domain.model.PriceTick;
+import com.iggroup.universityworkshopmw.integration.dto.PriceBarDto;
+import com.iggroup.universityworkshopmw.integration.dto.PriceTickDto;
+
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+public class PriceHistoryTransformer {
+
+   public static List<PriceTickDto> transformTicks(List<PriceTick> priceTicks) {
+      return priceTicks.stream()
+            .map(priceTick -> PriceTickDto.builder()
+                  .timestamp(priceTick.getTimestamp())
+                  .price(priceTick.getPrice())
+                  .build())
+            .collect(toList());
+   }
+
+   public static List<PriceBarDto> transformBars(List<PriceBar> priceBars) {
+      return priceBars.stream()
+            .map(priceBar -> PriceBarDto.builder()
+                  .startTime(priceBar.getStartTime())
+                  .open(priceBar.getOpen())
+                  .high(priceBar.getHigh())
+                  .low(priceBar.getLow())
+                  .close(priceBar.getClose())
+                  .tickCount(priceBar.getTickCount())
+                  .build())
+            .collect(toList());
+   }
+}
@@ -0,0 +1,48 @@
+package com.iggroup.universityworkshopmw.domain.cache;
+
+import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
+import com.iggroup.universityworkshopmw.domain.exceptions.NoMarketPriceAvailableException;
+import com.iggroup.universityworkshopmw.domain.model.MarketDataSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarketDataCacheBenchmark {
+
+   private MarketDataCache cache;
+
+   @Setup
+   public void setup() {
+      cache = new MarketDataCache();
+   }
+
+   @Benchmark
+   public double getCurrentPriceForMarket() throws NoMarketPriceAvailableException {
+      return cache.getCurrentPriceForMarket("market_7");
+   }
+
+   @Benchmark
+   public void updateCurrentPrice() {
+      cache.updateCurrentPrice(6, 123.45);
+   }
+
+   @Benchmark
+   public MarketDataSnapshot publishSnapshot() {
+      return cache.publishSnapshot();
+   }
+}
@@ -4,6 +4,7 @@ import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
 import com.iggroup.universityworkshopmw.domain.enums.MarketName;
 import com.iggroup.universityworkshopmw.domain.exceptions.NoMarketPriceAvailableException;
 import com.iggroup.universityworkshopmw.domain.model.Market;
+import com.iggroup.universityworkshopmw.domain.model.MarketDataSnapshot;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -12,68 +13,112 @@ import static org.assertj.core.api.Assertions.assertThat;
 public class MarketDataCacheTest {
 
    private MarketDataCache cache;
-   private Market market;
 
    private static final String ID = "ID";
    private static final MarketName MARKET_NAME = MarketName.GOLD;
-   private static final double PRICE = 100;
 
    @Before
    public void setup() {
       cache = new MarketDataCache();
-      market = Market.builder()
-            .id(ID)
+   }
+
+   @Test
+   public void shouldHoldEveryNamedMarketAtItsStartingPrice() {
+      // when
+      Market gold = cache.get("market_1");
+
+      // then
+      assertThat(gold).isEqualTo(Market.builder()
+            .id("market_1")
             .marketName(MARKET_NAME)
-            .currentPrice(PRICE)
-            .build();
+            .currentPrice(MARKET_NAME.getStartingPrice())
+            .build());
+      assertThat(cache.getSnapshot().getMarkets()).hasSize(MarketName.values().length);
+   }
+
+   @Test
+   public void shouldReturnTrueOnlyWhenQueryingExistingMarketID() {
+      assertThat(cache.containsKey("market_1")).isTrue();
+      assertThat(cache.containsKey(ID)).isFalse();
    }
 
    @Test
-   public void shouldStoreMarketDataWhenIdAndMarketProvided() {
+   public void shouldReturnCorrectMarketPriceWhenValidMarketIdProvided() throws NoMarketPriceAvailableException {
       // when
-      cache.put(ID, market);
+      double quotePrice = cache.getCurrentPriceForMarket("market_1");
 
       // then
-      assertThat(market).isEqualTo(cache.get(ID));
+      assertThat(quotePrice).isEqualTo(MARKET_NAME.getStartingPrice());
+   }
+
+   @Test(expected = NoMarketPriceAvailableException.class)
+   public void shouldThrowExceptionWhenMarketIsUnknown() throws NoMarketPriceAvailableException {
+      cache.getCurrentPriceForMarket(ID);
    }
 
    @Test
-   public void shouldReturnTrueWhenQueryingExistingMarketID() {
-      // given
-      String id = "ID";
+   public void shouldResolveMarketIdsToTheirIndex() {
+      assertThat(cache.indexOf("market_1")).isEqualTo(0);
+      assertThat(cache.indexOf("market_10")).isEqualTo(9);
+      assertThat(cache.getMarketId(9)).isEqualTo("market_10");
+   }
 
+   @Test
+   public void shouldNotResolveUnknownMarketIdsToAnIndex() {
+      assertThat(cache.indexOf(ID)).isEqualTo(-1);
+      assertThat(cache.indexOf("market_0")).isEqualTo(-1);
+      assertThat(cache.indexOf("market_01")).isEqualTo(-1);
+      assertThat(cache.indexOf("market_11")).isEqualTo(-1);
+      assertThat(cache.indexOf("market_")).isEqualTo(-1);
+      assertThat(cache.indexOf("market_1a")).isEqualTo(-1);
+      assertThat(cache.indexOf(null)).isEqualTo(-1);
+   }
+
+   @Test
+   public void shouldReturnUpdatedPriceWhenPriceUpdatedByIndex() throws NoMarketPriceAvailableException {
       // when
-      cache.put(ID, market);
+      cache.updateCurrentPrice(0, 321.5);
 
       // then
-      assertThat(cache.containsKey(id)).isTrue();
+      assertThat(cache.getCurrentPrice(0)).isEqualTo(321.5);
+      assertThat(cache.getCurrentPriceForMarket("market_1")).isEqualTo(321.5);
+      assertThat(cache.get("market_1").getCurrentPrice()).isEqualTo(321.5);
    }
 
    @Test
-   public void shouldReturnCorrectMarketPriceWhenValidMarketIdProvided() throws NoMarketPriceAvailableException {
+   public void shouldOnlyExposeIndexedPriceUpdatesOncePublishedInSnapshot() {
       // given
-      cache.put(ID, market);
+      MarketDataSnapshot initialSnapshot = cache.getSnapshot();
 
       // when
-      double quotePrice = cache.getCurrentPriceForMarket(ID);
+      cache.updateCurrentPrice(0, 321.5);
+      cache.updateCurrentPrice(1, 123.4);
 
       // then
-      assertThat(quotePrice == PRICE).isTrue();
+      assertThat(cache.getSnapshot()).isSameAs(initialSnapshot);
+      MarketDataSnapshot publishedSnapshot = cache.publishSnapshot();
+      assertThat(publishedSnapshot.getVersion()).isEqualTo(initialSnapshot.getVersion() + 1);
+      assertThat(publishedSnapshot.getMarkets()).extracting(Market::getCurrentPrice).contains(321.5, 123.4);
+      assertThat(initialSnapshot.getMarkets()).extracting(Market::getCurrentPrice).doesNotContain(321.5, 123.4);
+      assertThat(cache.getSnapshot()).isSameAs(publishedSnapshot);
    }
 
-   @Test(expected = NoMarketPriceAvailableException.class)
-   public void shouldThrowExceptionWhenMarketIsNull() throws NoMarketPriceAvailableException {
+   @Test
+   public void shouldCarryUnchangedMarketsIntoNextSnapshot() {
       // given
-      market = null;
+      MarketDataSnapshot initialSnapshot = cache.getSnapshot();
+      Market unchangedMarket = initialSnapshot.getMarkets().get(0);
 
       // when
-      cache.getCurrentPriceForMarket(ID);
+      MarketDataSnapshot publishedSnapshot = cache.publishSnapshot();
+
+      // then
+      assertThat(publishedSnapshot.getMarkets().get(0)).isSameAs(unchangedMarket);
    }
 
-   @Test(expected = NullPointerException.class)
-   public void shouldThrowExceptionWhenTryToPutNullMarket() {
-      // given
-      cache.put(ID, null);
+   @Test(expected = UnsupportedOperationException.class)
+   public void shouldNotAllowSnapshotMarketsToBeModified() {
+      cache.getSnapshot().getMarkets().clear();
    }
 
 }
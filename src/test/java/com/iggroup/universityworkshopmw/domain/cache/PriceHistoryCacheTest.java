@@ -0,0 +1,89 @@
+package com.iggroup.universityworkshopmw.domain.cache;
+
+import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
+import com.iggroup.universityworkshopmw.domain.caches.PriceHistoryCache;
+import com.iggroup.universityworkshopmw.domain.exceptions.NoAvailableDataException;
+import com.iggroup.universityworkshopmw.domain.model.PriceBar;
+import com.iggroup.universityworkshopmw.domain.model.PriceTick;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.iggroup.universityworkshopmw.domain.enums.BarResolution.ONE_MINUTE;
+import static com.iggroup.universityworkshopmw.domain.enums.BarResolution.ONE_SECOND;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PriceHistoryCacheTest {
+
+   private static final long MINUTE = 60_000L;
+
+   private MarketDataCache marketDataCache;
+   private PriceHistoryCache cache;
+
+   @Before
+   public void setup() {
+      marketDataCache = new MarketDataCache(5);
+      cache = new PriceHistoryCache(marketDataCache, 4, 3);
+   }
+
+   @Test
+   public void getTicks_returnsTicksInRangeInTimeOrder() throws Exception {
+      cache.recordTick(0, 1_000, 100.0);
+      cache.recordTick(0, 2_000, 101.0);
+      cache.recordTick(0, 3_000, 102.0);
+
+      List<PriceTick> ticks = cache.getTicks("market_1", 2_000, 3_000);
+
+      assertThat(ticks).containsExactly(PriceTick.builder().timestamp(2_000).price(101.0).build());
+   }
+
+   @Test
+   public void getTicks_keepsOnlyTheMostRecentTicksOnceFull() throws Exception {
+      for (int tick = 1; tick <= 6; tick++) {
+         cache.recordTick(0, tick * 1_000L, tick);
+      }
+
+      List<PriceTick> ticks = cache.getTicks("market_1", 0, Long.MAX_VALUE);
+
+      assertThat(ticks).extracting(PriceTick::getPrice).containsExactly(3.0, 4.0, 5.0, 6.0);
+   }
+
+   @Test
+   public void getBars_aggregatesTicksIntoOpenHighLowCloseBars() throws Exception {
+      cache.recordTick(0, 10_000, 100.0);
+      cache.recordTick(0, 20_000, 104.0);
+      cache.recordTick(0, 30_000, 98.0);
+      cache.recordTick(0, 50_000, 101.0);
+      cache.recordTick(0, MINUTE + 5_000, 103.0);
+
+      List<PriceBar> bars = cache.getBars("market_1", ONE_MINUTE, 0, Long.MAX_VALUE);
+
+      assertThat(bars).containsExactly(
+            PriceBar.builder().startTime(0).open(100.0).high(104.0).low(98.0).close(101.0).tickCount(4).build(),
+            PriceBar.builder().startTime(MINUTE).open(103.0).high(103.0).low(103.0).close(103.0).tickCount(1).build());
+   }
+
+   @Test
+   public void getBars_returnsBarsOverlappingRequestedRange() throws Exception {
+      cache.recordTick(0, 500, 100.0);
+      cache.recordTick(0, 1_500, 101.0);
+      cache.recordTick(0, 2_500, 102.0);
+
+      List<PriceBar> bars = cache.getBars("market_1", ONE_SECOND, 1_700, 2_000);
+
+      assertThat(bars).extracting(PriceBar::getStartTime).containsExactly(1_000L);
+   }
+
+   @Test
+   public void recordTick_ignoresSyntheticMarkets() throws Exception {
+      cache.recordTick(marketDataCache.size() - 1, 1_000, 100.0);
+
+      assertThat(cache.getTicks("market_1", 0, Long.MAX_VALUE)).isEmpty();
+   }
+
+   @Test(expected = NoAvailableDataException.class)
+   public void getTicks_throwsForMarketWithoutHistory() throws Exception {
+      cache.getTicks("market_" + marketDataCache.size(), 0, Long.MAX_VALUE);
+   }
+}
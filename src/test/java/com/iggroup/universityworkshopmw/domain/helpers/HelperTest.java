@@ -0,0 +1,87 @@
+package com.iggroup.universityworkshopmw.domain.helpers;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.iggroup.universityworkshopmw.domain.helpers.Helper.createUniqueId;
+import static com.iggroup.universityworkshopmw.domain.helpers.Helper.createUniqueIds;
+import static com.iggroup.universityworkshopmw.domain.helpers.Helper.nextUniqueIds;
+import static com.iggroup.universityworkshopmw.domain.helpers.Helper.roundToTwoDecimalPlaces;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HelperTest {
+
+   @Test
+   public void createUniqueId_prefixesCompactId() {
+      String id = createUniqueId("opid_");
+
+      assertThat(id).startsWith("opid_");
+      assertThat(id).matches("opid_[0-9a-z]{1,13}");
+   }
+
+   @Test
+   public void createUniqueId_returnsDifferentIdsWithinTheSameMillisecond() {
+      Set<String> ids = new HashSet<>();
+      for (int i = 0; i < 10000; i++) {
+         ids.add(createUniqueId("opid_"));
+      }
+
+      assertThat(ids).hasSize(10000);
+   }
+
+   @Test
+   public void createUniqueIds_returnsDistinctIncreasingIdsFromOneBlock() {
+      List<String> ids = createUniqueIds("opid_", 3);
+
+      assertThat(ids).hasSize(3).doesNotHaveDuplicates();
+      ids.forEach(id -> assertThat(id).startsWith("opid_"));
+      assertThat(ids).isSorted();
+   }
+
+   @Test
+   public void nextUniqueIds_returnsUniqueIdsAcrossThreads() throws Exception {
+      int threads = 8;
+      int idsPerThread = 10000;
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      List<Future<List<Long>>> results = new ArrayList<>();
+      for (int thread = 0; thread < threads; thread++) {
+         results.add(executor.submit(() -> {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < idsPerThread; i++) {
+               ids.add(nextUniqueIds(1));
+            }
+            return ids;
+         }));
+      }
+
+      Set<Long> allIds = new HashSet<>();
+      for (Future<List<Long>> result : results) {
+         allIds.addAll(result.get());
+      }
+      executor.shutdown();
+
+      assertThat(allIds).hasSize(threads * idsPerThread);
+   }
+
+   @Test
+   public void nextUniqueIds_reservesNonOverlappingBlocks() {
+      long firstBlockStart = nextUniqueIds(100);
+      long secondBlockStart = nextUniqueIds(1);
+
+      assertThat(secondBlockStart).isGreaterThanOrEqualTo(firstBlockStart + 100);
+   }
+
+   @Test
+   public void roundToTwoDecimalPlaces_roundsHalfUp() {
+      assertThat(roundToTwoDecimalPlaces(104.93824)).isEqualTo(104.94);
+      assertThat(roundToTwoDecimalPlaces(1.005001)).isEqualTo(1.01);
+      assertThat(roundToTwoDecimalPlaces(-2.344)).isEqualTo(-2.34);
+   }
+}
@@ -0,0 +1,42 @@
+package com.iggroup.universityworkshopmw.domain.journal;
+
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JournalCodecTest {
+
+   @Test
+   public void decode_returnsEveryRecordTypeAsEncoded() {
+      JournalRecord clientCreated = JournalRecord.clientCreated(Client.builder()
+            .id("client_1")
+            .userName("üsername")
+            .availableFunds(25000)
+            .runningProfitAndLoss(-12.5)
+            .build());
+      JournalRecord fundsUpdated = JournalRecord.fundsUpdated("client_1", 1234.56, 78.9);
+      JournalRecord positionOpened = JournalRecord.positionOpened("client_1", OpenPosition.builder()
+            .id("opid_1")
+            .marketId("market_3")
+            .buySize(40)
+            .openingPrice(250.25)
+            .build());
+      JournalRecord positionClosed = JournalRecord.positionClosed("client_1", "opid_1");
+
+      assertThat(roundTrip(clientCreated)).isEqualTo(clientCreated);
+      assertThat(roundTrip(fundsUpdated)).isEqualTo(fundsUpdated);
+      assertThat(roundTrip(positionOpened)).isEqualTo(positionOpened);
+      assertThat(roundTrip(positionClosed)).isEqualTo(positionClosed);
+   }
+
+   private JournalRecord roundTrip(JournalRecord record) {
+      ByteBuffer buffer = ByteBuffer.allocate(JournalCodec.MAX_RECORD_BYTES);
+      JournalCodec.encode(record, buffer);
+      buffer.flip();
+      return JournalCodec.decode(buffer);
+   }
+}
@@ -0,0 +1,69 @@
+package com.iggroup.universityworkshopmw.domain.journal;
+
+import com.google.common.base.Strings;
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ExecutionException;
+
+import static com.iggroup.universityworkshopmw.domain.journal.MappedStateJournal.SEGMENT_PREFIX;
+import static com.iggroup.universityworkshopmw.domain.journal.MappedStateJournal.SEGMENT_SUFFIX;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class MappedStateJournalTest {
+
+   private static final int SEGMENT_SIZE_BYTES = 4096;
+
+   @Rule
+   public TemporaryFolder journalFolder = new TemporaryFolder();
+
+   @Test
+   public void reopening_carriesOnWritingTheLastSegment() throws Exception {
+      MappedStateJournal journal = new MappedStateJournal(journalFolder.getRoot().getPath(), SEGMENT_SIZE_BYTES);
+      journal.fundsUpdated("client_1", 100, 0);
+      journal.close();
+
+      journal = new MappedStateJournal(journalFolder.getRoot().getPath(), SEGMENT_SIZE_BYTES);
+      journal.fundsUpdated("client_2", 200, 0);
+      journal.close();
+
+      NavigableMap<Long, Path> segments = MappedStateJournal.listFiles(journal.getDirectory(), SEGMENT_PREFIX, SEGMENT_SUFFIX);
+      assertThat(segments).hasSize(1);
+      assertThat(readClientIds(segments.firstEntry().getValue())).containsExactly("client_1", "client_2");
+   }
+
+   @Test
+   public void failedWrite_rejectsLaterChanges() throws Exception {
+      MappedStateJournal journal = new MappedStateJournal(journalFolder.getRoot().getPath(), SEGMENT_SIZE_BYTES);
+      // Too long to encode, so the writer fails on it
+      journal.clientCreated(Client.builder().id("client_1").userName(Strings.repeat("x", 0x10000)).build());
+
+      try {
+         journal.rollSegment().get(5, SECONDS);
+         fail("Roll should fail once the journal has failed");
+      } catch (ExecutionException e) {
+         assertThat(e.getCause()).isInstanceOf(IllegalArgumentException.class);
+      }
+      try {
+         journal.checkRecording();
+         fail("Changes should be rejected once the journal has failed");
+      } catch (IllegalStateException e) {
+         assertThat(e.getCause()).isInstanceOf(IllegalArgumentException.class);
+      }
+      journal.close();
+   }
+
+   private List<String> readClientIds(Path segment) throws Exception {
+      List<String> clientIds = new ArrayList<>();
+      JournalCodec.readFrames(segment, record -> clientIds.add(record.getClientId()));
+      return clientIds;
+   }
+}
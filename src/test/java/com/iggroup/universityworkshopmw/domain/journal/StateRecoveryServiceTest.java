@@ -0,0 +1,149 @@
+package com.iggroup.universityworkshopmw.domain.journal;
+
+import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import com.iggroup.universityworkshopmw.domain.services.ClientService;
+import com.iggroup.universityworkshopmw.domain.services.OpenPositionsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.iggroup.universityworkshopmw.domain.services.ClientService.INITIAL_FUNDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StateRecoveryServiceTest {
+
+   private static final int SEGMENT_SIZE_BYTES = 4096;
+   private static final long SNAPSHOT_INTERVAL_MILLIS = 60000;
+
+   @Rule
+   public TemporaryFolder journalFolder = new TemporaryFolder();
+
+   private MarketDataCache marketDataCache;
+   private MappedStateJournal journal;
+   private ClientService clientService;
+   private OpenPositionsService openPositionsService;
+
+   @Before
+   public void setUp() throws Exception {
+      marketDataCache = new MarketDataCache();
+      startServices();
+   }
+
+   @After
+   public void tearDown() throws Exception {
+      journal.close();
+   }
+
+   @Test
+   public void recover_restoresClientsAndOpenPositionsFromJournal() throws Exception {
+      Client client = clientService.storeNewClient(Client.builder().userName("username").build());
+      OpenPosition kept = openPositionsService.addOpenPositionForClient(client.getId(), openPosition("market_1", 10));
+      OpenPosition closed = openPositionsService.addOpenPositionForClient(client.getId(), openPosition("market_2", 5));
+      openPositionsService.closeOpenPosition(client.getId(), closed.getId());
+      double expectedFunds = clientService.getClientData(client.getId()).getAvailableFunds();
+
+      restartServices();
+
+      assertThat(clientService.getClientDataByUsername("username").getAvailableFunds()).isEqualTo(expectedFunds);
+      assertThat(openPositionsService.getOpenPositionsForClient(client.getId())).containsExactly(kept);
+   }
+
+   @Test
+   public void recover_spansSegmentsWhenJournalOutgrowsOneSegment() throws Exception {
+      Client client = clientService.storeNewClient(Client.builder().userName("username").build());
+      for (int i = 0; i < 150; i++) {
+         openPositionsService.addOpenPositionForClient(client.getId(), openPosition("market_9", 1));
+      }
+
+      restartServices();
+
+      assertThat(openPositionsService.getOpenPositionsForClient(client.getId())).hasSize(150);
+      assertThat(clientService.getClientData(client.getId()).getAvailableFunds())
+            .isEqualTo(INITIAL_FUNDS - 150 * marketDataCache.getCurrentPriceForMarket("market_9"));
+   }
+
+   @Test
+   public void snapshot_compactsJournalAndRecoveryAppliesLaterRecordsOnTop() throws Exception {
+      Client client = clientService.storeNewClient(Client.builder().userName("username").build());
+      OpenPosition beforeSnapshot = openPositionsService.addOpenPositionForClient(client.getId(), openPosition("market_1", 10));
+      new StateRecoveryService(clientService, openPositionsService, journal, SNAPSHOT_INTERVAL_MILLIS).snapshot();
+      OpenPosition afterSnapshot = openPositionsService.addOpenPositionForClient(client.getId(), openPosition("market_3", 2));
+      double expectedFunds = clientService.getClientData(client.getId()).getAvailableFunds();
+
+      restartServices();
+
+      assertThat(countSnapshots()).isEqualTo(1);
+      List<OpenPosition> openPositions = openPositionsService.getOpenPositionsForClient(client.getId());
+      assertThat(openPositions).containsExactly(beforeSnapshot, afterSnapshot);
+      assertThat(clientService.getClientData(client.getId()).getAvailableFunds()).isEqualTo(expectedFunds);
+   }
+
+   @Test
+   public void start_writesSnapshotsOnItsOwnSchedule() throws Exception {
+      clientService.storeNewClient(Client.builder().userName("username").build());
+      StateRecoveryService stateRecoveryService = new StateRecoveryService(clientService, openPositionsService, journal, 10);
+
+      stateRecoveryService.start();
+      try {
+         long deadline = System.currentTimeMillis() + 10_000;
+         while (countSnapshots() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+         }
+      } finally {
+         stateRecoveryService.stop();
+      }
+
+      assertThat(countSnapshots()).isNotZero();
+   }
+
+   @Test
+   public void recover_takesUnrealisedProfitAndLossOutOfFunds() throws Exception {
+      Client client = clientService.storeNewClient(Client.builder().userName("username").build());
+      openPositionsService.addOpenPositionForClient(client.getId(), openPosition("market_1", 10));
+      double openedFunds = clientService.getClientData(client.getId()).getAvailableFunds();
+      clientService.getClientData(client.getId()).setRunningProfitAndLoss(150);
+      clientService.updateAvailableFunds(client.getId(), openedFunds + 150);
+
+      restartServices();
+
+      Client recoveredClient = clientService.getClientData(client.getId());
+      assertThat(recoveredClient.getAvailableFunds()).isEqualTo(openedFunds);
+      assertThat(recoveredClient.getRunningProfitAndLoss()).isEqualTo(0.0);
+   }
+
+   private void restartServices() throws Exception {
+      journal.close();
+      startServices();
+      new StateRecoveryService(clientService, openPositionsService, journal, SNAPSHOT_INTERVAL_MILLIS).recover();
+   }
+
+   private void startServices() throws Exception {
+      journal = new MappedStateJournal(journalFolder.getRoot().getPath(), SEGMENT_SIZE_BYTES);
+      clientService = new ClientService(journal);
+      openPositionsService = new OpenPositionsService(clientService, marketDataCache, journal, false, new SimpleMeterRegistry());
+   }
+
+   private long countSnapshots() throws IOException {
+      try (Stream<Path> paths = Files.list(journalFolder.getRoot().toPath())) {
+         return paths.filter(path -> path.toString().endsWith(StateRecoveryService.SNAPSHOT_SUFFIX)).count();
+      }
+   }
+
+   private OpenPosition openPosition(String marketId, int buySize) {
+      return OpenPosition.builder()
+            .marketId(marketId)
+            .buySize(buySize)
+            .build();
+   }
+}
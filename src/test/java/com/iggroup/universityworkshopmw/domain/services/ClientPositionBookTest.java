@@ -0,0 +1,93 @@
+package com.iggroup.universityworkshopmw.domain.services;
+
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClientPositionBookTest {
+
+   private ClientPositionBook positionBook;
+
+   @Before
+   public void setUp() {
+      positionBook = new ClientPositionBook();
+   }
+
+   @Test
+   public void revalueMarket_updatesOnlyPositionsInThatMarketAndReturnsDelta() {
+      positionBook.add(createPosition("opid_1", "market_1", 10, 100.0), 0);
+      positionBook.add(createPosition("opid_2", "market_2", 5, 50.0), 1);
+      positionBook.add(createPosition("opid_3", "market_1", 2, 110.0), 0);
+
+      double profitAndLossDelta = positionBook.revalueMarket(0, "market_1", 105.0);
+
+      assertThat(profitAndLossDelta).isEqualTo(50.0 - 10.0);
+      assertThat(positionBook.get(0).getProfitAndLoss()).isEqualTo(50.0);
+      assertThat(positionBook.get(1).getProfitAndLoss()).isEqualTo(0.0);
+      assertThat(positionBook.get(2).getProfitAndLoss()).isEqualTo(-10.0);
+   }
+
+   @Test
+   public void revalueMarket_matchesOnMarketIdForMarketsWithoutPriceIndex() {
+      positionBook.add(createPosition("opid_1", "ID", 10, 100.0), -1);
+      positionBook.add(createPosition("opid_2", "OTHER", 10, 100.0), -1);
+
+      double profitAndLossDelta = positionBook.revalueMarket(-1, "ID", 101.0);
+
+      assertThat(profitAndLossDelta).isEqualTo(10.0);
+      assertThat(positionBook.get(1).getProfitAndLoss()).isEqualTo(0.0);
+   }
+
+   @Test
+   public void remove_movesLastPositionIntoFreedSlotAndKeepsIdsFindable() {
+      IntStream.rangeClosed(1, 6).forEach(idx -> positionBook.add(createPosition("opid_" + idx, "market_1", idx, 100.0), 0));
+
+      positionBook.remove(positionBook.indexOf("opid_2"));
+
+      assertThat(positionBook.size()).isEqualTo(5);
+      assertThat(positionBook.indexOf("opid_2")).isEqualTo(-1);
+      assertThat(positionBook.toList()).extracting(OpenPosition::getId)
+            .containsExactly("opid_1", "opid_6", "opid_3", "opid_4", "opid_5");
+      IntStream.rangeClosed(1, 6)
+            .filter(idx -> idx != 2)
+            .forEach(idx -> assertThat(positionBook.get(positionBook.indexOf("opid_" + idx)).getBuySize()).isEqualTo(idx));
+   }
+
+   @Test
+   public void remove_lastRemainingPositionClearsUsedMargin() {
+      positionBook.add(createPosition("opid_1", "market_1", 3, 100.0), 0);
+
+      positionBook.remove(positionBook.indexOf("opid_1"));
+
+      assertThat(positionBook.isEmpty()).isTrue();
+      assertThat(positionBook.indexOf("opid_1")).isEqualTo(-1);
+      assertThat(positionBook.getUsedMargin()).isEqualTo(0.0);
+   }
+
+   @Test
+   public void get_materialisesStoredPosition() {
+      OpenPosition openPosition = OpenPosition.builder()
+            .id("opid_1")
+            .marketId("market_1")
+            .buySize(3)
+            .openingPrice(100.0)
+            .profitAndLoss(12.0)
+            .build();
+      positionBook.add(openPosition, 0);
+
+      assertThat(positionBook.get(0)).isEqualTo(openPosition);
+   }
+
+   private OpenPosition createPosition(String id, String marketId, int buySize, double openingPrice) {
+      return OpenPosition.builder()
+            .id(id)
+            .marketId(marketId)
+            .buySize(buySize)
+            .openingPrice(openingPrice)
+            .build();
+   }
+}
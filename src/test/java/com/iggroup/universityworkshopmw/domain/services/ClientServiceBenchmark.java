@@ -0,0 +1,47 @@
+package com.iggroup.universityworkshopmw.domain.services;
+
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientServiceBenchmark {
+
+   @Param({"100", "100000"})
+   private int clientCount;
+
+   private ClientService clientService;
+   private String username;
+
+   @Setup
+   public void setup() throws Exception {
+      clientService = new ClientService();
+      for (int client = 0; client < clientCount; client++) {
+         clientService.storeNewClient(Client.builder()
+               .userName("user_" + client)
+               .build());
+      }
+      username = "user_" + clientCount / 2;
+   }
+
+   @Benchmark
+   public Client getClientDataByUsername() throws Exception {
+      return clientService.getClientDataByUsername(username);
+   }
+}
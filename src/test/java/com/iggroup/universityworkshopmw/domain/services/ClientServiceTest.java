@@ -2,12 +2,28 @@ package com.iggroup.universityworkshopmw.domain.services;
 
 import com.iggroup.universityworkshopmw.domain.exceptions.DuplicatedDataException;
 import com.iggroup.universityworkshopmw.domain.exceptions.NoAvailableDataException;
+import com.iggroup.universityworkshopmw.domain.journal.StateJournal;
 import com.iggroup.universityworkshopmw.domain.model.Client;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static com.iggroup.universityworkshopmw.domain.services.ClientService.INITIAL_FUNDS;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 public class ClientServiceTest {
 
@@ -78,6 +94,65 @@ public class ClientServiceTest {
       clientService.getClientDataByUsername(username);
    }
 
+   @Test(expected = DuplicatedDataException.class)
+   public void storeNewClient_rejectsDuplicatedUsername() throws DuplicatedDataException {
+      clientService.storeNewClient(createClient("userName1"));
+
+      clientService.storeNewClient(createClient("userName1"));
+   }
+
+   @Test
+   public void storeNewClient_storesOnlyOneClientPerUsernameWhenRegisteredConcurrently() throws Exception {
+      int threads = 8;
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Client>> results = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+         results.add(executor.submit(() -> {
+            start.await();
+            return clientService.storeNewClient(createClient("userName1"));
+         }));
+      }
+
+      start.countDown();
+      int storedClients = 0;
+      for (Future<Client> result : results) {
+         try {
+            result.get();
+            storedClients++;
+         } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(DuplicatedDataException.class);
+         }
+      }
+      executor.shutdown();
+
+      assertThat(storedClients).isEqualTo(1);
+      assertThat(clientService.getClientPage(null, clientService.getLastClientId(), 10)).hasSize(1);
+   }
+
+   @Test
+   public void failedJournal_storesAndChangesNothing() throws Exception {
+      StateJournal stateJournal = mock(StateJournal.class);
+      clientService = new ClientService(stateJournal);
+      String clientId = clientService.storeNewClient(createClient("userName1")).getId();
+      doThrow(new IllegalStateException("Journal failed")).when(stateJournal).checkRecording();
+
+      try {
+         clientService.storeNewClient(createClient("userName2"));
+         fail("Storing a client should fail once the journal has failed");
+      } catch (IllegalStateException expected) {
+      }
+      try {
+         clientService.updateAvailableFunds(clientId, 100);
+         fail("Updating funds should fail once the journal has failed");
+      } catch (IllegalStateException expected) {
+      }
+
+      assertThat(clientService.getLastClientId()).isEqualTo(clientId);
+      assertThat(clientService.getClientData(clientId).getAvailableFunds()).isEqualTo(INITIAL_FUNDS);
+      verify(stateJournal, never()).fundsUpdated(anyString(), anyDouble(), anyDouble());
+   }
+
    @Test
    public void updateAvailableFunds_updatesAvailableFunds() throws NoAvailableDataException, DuplicatedDataException {
       Client returnClient1 = clientService.storeNewClient(createClient("userName1"));
@@ -99,26 +174,67 @@ public class ClientServiceTest {
    }
 
    @Test
-   public void updateRunningProfitAndLoss_updatesAvailableFundsAndRunningProfitAndLoss() throws NoAvailableDataException, DuplicatedDataException {
+   public void applyProfitAndLossDelta_updatesAvailableFundsAndRunningProfitAndLoss() throws NoAvailableDataException, DuplicatedDataException {
       Client client = clientService.storeNewClient(createClient("userName1"));
       String clientId = client.getId();
       double initialAvailableFunds = client.getAvailableFunds();
-      // To account for a previous profit and loss calculation
-      clientService.updateRunningProfitAndLoss(clientId, 5);
-      double sumOfProfitAndLoss = 500;
+      // To account for a previous price move
+      clientService.applyProfitAndLossDelta(clientId, 5);
+      double profitAndLossDelta = 500;
 
-      clientService.updateRunningProfitAndLoss(clientId, sumOfProfitAndLoss);
+      clientService.applyProfitAndLossDelta(clientId, profitAndLossDelta);
 
       final Client clientData = clientService.getClientData(clientId);
-      assertThat(clientData.getRunningProfitAndLoss()).isEqualTo(sumOfProfitAndLoss);
-      assertThat(clientData.getAvailableFunds()).isEqualTo(initialAvailableFunds + sumOfProfitAndLoss);
+      assertThat(clientData.getRunningProfitAndLoss()).isEqualTo(5 + profitAndLossDelta);
+      assertThat(clientData.getAvailableFunds()).isEqualTo(initialAvailableFunds + 5 + profitAndLossDelta);
    }
 
    @Test(expected = NoAvailableDataException.class)
-   public void updateRunningProfitAndLoss_handlesMapContainingNoClientDataForClientId() throws NoAvailableDataException {
+   public void applyProfitAndLossDelta_handlesMapContainingNoClientDataForClientId() throws NoAvailableDataException {
       String clientId = "randomIdNotInMap";
 
-      clientService.updateRunningProfitAndLoss(clientId, 800);
+      clientService.applyProfitAndLossDelta(clientId, 800);
+   }
+
+   @Test
+   public void getClientPage_pagesThroughClientsInIdOrderFromCursor() throws DuplicatedDataException {
+      List<String> clientIds = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+         clientIds.add(clientService.storeNewClient(createClient("userName" + i)).getId());
+      }
+      clientIds.sort(null);
+      String lastClientId = clientService.getLastClientId();
+
+      List<Client> firstPage = clientService.getClientPage(null, lastClientId, 3);
+      List<Client> secondPage = clientService.getClientPage(firstPage.get(2).getId(), lastClientId, 3);
+
+      assertThat(lastClientId).isEqualTo(clientIds.get(4));
+      assertThat(firstPage).extracting(Client::getId).containsExactlyElementsOf(clientIds.subList(0, 3));
+      assertThat(secondPage).extracting(Client::getId).containsExactlyElementsOf(clientIds.subList(3, 5));
+      assertThat(clientService.getClientPage(lastClientId, lastClientId, 3)).isEmpty();
+   }
+
+   @Test
+   public void getClientPage_stopsAtLastClientId() throws DuplicatedDataException {
+      assertThat(clientService.getLastClientId()).isNull();
+      String clientId = clientService.storeNewClient(createClient("userName1")).getId();
+      String lastClientId = clientService.getLastClientId();
+
+      String laterClientId = clientService.storeNewClient(createClient("userName2")).getId();
+
+      assertThat(laterClientId.compareTo(lastClientId)).isPositive();
+      assertThat(clientService.getClientPage(null, lastClientId, 10)).extracting(Client::getId).containsExactly(clientId);
+      assertThat(clientService.getClientPage(laterClientId, lastClientId, 10)).isEmpty();
+   }
+
+   @Test
+   public void getClientPage_returnsCopiesOfClients() throws Exception {
+      String clientId = clientService.storeNewClient(createClient("userName1")).getId();
+
+      Client pagedClient = clientService.getClientPage(null, clientId, 1).get(0);
+      clientService.updateAvailableFunds(clientId, 100);
+
+      assertThat(pagedClient.getAvailableFunds()).isEqualTo(INITIAL_FUNDS);
    }
 
    private Client createClient(String userName) {
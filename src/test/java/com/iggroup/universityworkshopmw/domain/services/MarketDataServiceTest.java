@@ -1,26 +1,29 @@
 package com.iggroup.universityworkshopmw.domain.services;
 
 import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
+import com.iggroup.universityworkshopmw.domain.caches.PriceHistoryCache;
 import com.iggroup.universityworkshopmw.domain.model.Market;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.List;
-import java.util.Map;
 
 import static com.iggroup.universityworkshopmw.domain.enums.MarketName.*;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 public class MarketDataServiceTest {
 
    private MarketDataService marketDataService;
+   private TickPipeline tickPipeline;
 
    @Before
    public void setup() {
       //Given
-      OpenPositionsService openPositionsService = mock(OpenPositionsService.class);
-      marketDataService = new MarketDataService(openPositionsService, new MarketDataCache());
+      tickPipeline = mock(TickPipeline.class);
+      MarketDataCache marketDataCache = new MarketDataCache();
+      marketDataService = new MarketDataService(tickPipeline, marketDataCache, new PriceHistoryCache(marketDataCache, 16, 16));
    }
 
    @Test
@@ -35,33 +38,30 @@ public class MarketDataServiceTest {
    }
 
    @Test
-   public void updateMarket_updatesMarketInMap() {
-      //Given
-      Market aRandomMarketFromMap = marketDataService.getAllMarkets().get(0);
-      Market updatedMarket = Market.builder()
-            .id(aRandomMarketFromMap.getId())
-            .marketName(SILVER)
-            .currentPrice(123.1)
-            .build();
-
+   public void updateMarketPrice_updatesPriceOfMarketAtIndex() {
       //When
-      marketDataService.updateMarket(updatedMarket);
+      marketDataService.updateMarketPrice(1, 123.1);
+      marketDataService.publishMarketDataSnapshot();
 
       //Then
       List<Market> allMarkets = marketDataService.getAllMarkets();
-      assertThat(allMarkets).doesNotContain(aRandomMarketFromMap);
-      assertThat(allMarkets).contains(updatedMarket);
+      assertThat(marketDataService.getCurrentPrice(1)).isEqualTo(123.1);
+      assertThat(allMarkets).contains(Market.builder()
+            .id("market_2")
+            .marketName(SILVER)
+            .currentPrice(123.1)
+            .build());
    }
 
    @Test
-   public void getShuffledMapSubset_returnsRandomlyOrderedPartialMap() {
+   public void publishUpdatedMarkets_publishesMarketIndexesToTickPipeline() {
       //Given
-      List<Map.Entry<String, Market>> initialShuffledMapSubset = marketDataService.getShuffledMapSubset();
+      int[] marketIndexes = {3, 1, 7};
 
       //When
-      List<Map.Entry<String, Market>> secondShuffledMapSubset = marketDataService.getShuffledMapSubset();
+      marketDataService.publishUpdatedMarkets(marketIndexes, 2);
 
       //Then
-      assertThat(initialShuffledMapSubset).isNotEqualTo(secondShuffledMapSubset);
+      verify(tickPipeline).publish(marketIndexes, 2);
    }
-}
\ No newline at end of file
+}
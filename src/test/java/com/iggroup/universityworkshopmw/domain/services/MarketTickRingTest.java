@@ -0,0 +1,42 @@
+package com.iggroup.universityworkshopmw.domain.services;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MarketTickRingTest {
+
+   @Test
+   public void capacity_isRoundedUpToPowerOfTwo() {
+      assertThat(new MarketTickRing(5).capacity()).isEqualTo(8);
+      assertThat(new MarketTickRing(8).capacity()).isEqualTo(8);
+   }
+
+   @Test
+   public void offer_rejectsTicksOnceFull() {
+      MarketTickRing ring = new MarketTickRing(2);
+
+      assertThat(ring.offer(1)).isTrue();
+      assertThat(ring.offer(2)).isTrue();
+      assertThat(ring.offer(3)).isFalse();
+   }
+
+   @Test
+   public void drainTo_returnsTicksInOrderAcrossWrapAround() {
+      MarketTickRing ring = new MarketTickRing(4);
+      int[] batch = new int[4];
+      ring.offer(1);
+      ring.offer(2);
+      ring.offer(3);
+      ring.drainTo(batch);
+
+      ring.offer(4);
+      ring.offer(5);
+      ring.offer(6);
+      int count = ring.drainTo(batch);
+
+      assertThat(count).isEqualTo(3);
+      assertThat(batch).startsWith(4, 5, 6);
+      assertThat(ring.drainTo(batch)).isEqualTo(0);
+   }
+}
@@ -0,0 +1,92 @@
+package com.iggroup.universityworkshopmw.domain.services;
+
+import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
+import com.iggroup.universityworkshopmw.domain.journal.StateJournal;
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenPositionsServiceBenchmark {
+
+   private static final int MARKETS = 10;
+
+   @Param({"100", "10000"})
+   private int clientCount;
+
+   @Param({"1", "10"})
+   private int positionsPerClient;
+
+   private OpenPositionsService openPositionsService;
+   private String tradingClientId;
+   private double marketPrice;
+
+   @Setup
+   public void setup() throws Exception {
+      openPositionsService = new OpenPositionsService(new FundedClientService(), new MarketDataCache(), StateJournal.NO_OP, false, new SimpleMeterRegistry());
+
+      for (int client = 0; client < clientCount; client++) {
+         for (int position = 0; position < positionsPerClient; position++) {
+            openPositionsService.addOpenPositionForClient("client_" + client, createOpenPosition("market_" + (position % MARKETS + 1)));
+         }
+      }
+      tradingClientId = "client_" + clientCount / 2;
+   }
+
+   @Benchmark
+   public void updateMarketPrice() {
+      marketPrice = marketPrice == 500 ? 501 : 500;
+      openPositionsService.updateMarketPrice("market_1", marketPrice);
+   }
+
+   @Benchmark
+   public Double addAndCloseOpenPosition() throws Exception {
+      OpenPosition openPosition = openPositionsService.addOpenPositionForClient(tradingClientId, createOpenPosition("market_2"));
+      return openPositionsService.closeOpenPosition(tradingClientId, openPosition.getId());
+   }
+
+   private static OpenPosition createOpenPosition(String marketId) {
+      return OpenPosition.builder()
+            .marketId(marketId)
+            .buySize(1)
+            .build();
+   }
+
+   // Keeps client bookkeeping out of the measurement, so only position handling is benchmarked
+   private static class FundedClientService extends ClientService {
+
+      @Override
+      public Client getClientData(String clientId) {
+         return Client.builder()
+               .id(clientId)
+               .availableFunds(Double.MAX_VALUE)
+               .build();
+      }
+
+      @Override
+      void setAvailableFunds(String clientId, double updatedAvailableFunds) {
+      }
+
+      @Override
+      void applyProfitAndLossDelta(String clientId, double profitAndLossDelta) {
+      }
+   }
+}
@@ -5,19 +5,37 @@ import com.iggroup.universityworkshopmw.domain.exceptions.InsufficientFundsExcep
 import com.iggroup.universityworkshopmw.domain.exceptions.MissingBuySizeException;
 import com.iggroup.universityworkshopmw.domain.exceptions.NoAvailableDataException;
 import com.iggroup.universityworkshopmw.domain.exceptions.NoMarketPriceAvailableException;
+import com.iggroup.universityworkshopmw.domain.journal.StateJournal;
 import com.iggroup.universityworkshopmw.domain.model.Client;
 import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import com.iggroup.universityworkshopmw.domain.model.OpenPositionResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.IntStream;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static com.iggroup.universityworkshopmw.domain.services.ClientService.INITIAL_FUNDS;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -33,7 +51,8 @@ public class OpenPositionsServiceTest {
    public void setUp() {
       clientService = mock(ClientService.class);
       marketDataCache = mock(MarketDataCache.class);
-      openPositionsService = new OpenPositionsService(clientService, marketDataCache);
+      when(marketDataCache.indexOf(anyString())).thenReturn(-1);
+      openPositionsService = new OpenPositionsService(clientService, marketDataCache, StateJournal.NO_OP, false, new SimpleMeterRegistry());
       initialiseOpenPositions();
    }
 
@@ -105,7 +124,7 @@ public class OpenPositionsServiceTest {
 
       ArgumentCaptor<Double> availableFundsCaptor = ArgumentCaptor.forClass(Double.class);
       ArgumentCaptor<String> clientIdCaptor = ArgumentCaptor.forClass(String.class);
-      verify(clientService, times(1)).updateAvailableFunds(clientIdCaptor.capture(), availableFundsCaptor.capture());
+      verify(clientService, times(1)).setAvailableFunds(clientIdCaptor.capture(), availableFundsCaptor.capture());
       assertThat(clientIdCaptor.getValue()).isEqualTo("client_3");
       assertThat(availableFundsCaptor.getValue()).isEqualTo(11145.0);
    }
@@ -203,18 +222,53 @@ public class OpenPositionsServiceTest {
       openPositionsService.closeOpenPosition("client_1", clientPositions.get(0).getId());
 
       ArgumentCaptor<String> clientIdCaptor2 = ArgumentCaptor.forClass(String.class);
-      ArgumentCaptor<Double> runningProfitAndLossCaptor = ArgumentCaptor.forClass(Double.class);
-      verify(clientService, times(1)).updateRunningProfitAndLoss(clientIdCaptor2.capture(), runningProfitAndLossCaptor.capture());
+      ArgumentCaptor<Double> profitAndLossDeltaCaptor = ArgumentCaptor.forClass(Double.class);
+      verify(clientService, times(1)).applyProfitAndLossDelta(clientIdCaptor2.capture(), profitAndLossDeltaCaptor.capture());
       assertThat(clientIdCaptor2.getAllValues()).containsOnly("client_1");
-      assertThat(runningProfitAndLossCaptor.getValue()).isEqualTo(0);
+      assertThat(profitAndLossDeltaCaptor.getValue()).isCloseTo(0.0, within(0.0));
 
       ArgumentCaptor<String> clientIdCaptor = ArgumentCaptor.forClass(String.class);
       ArgumentCaptor<Double> availableFundsCaptor = ArgumentCaptor.forClass(Double.class);
-      verify(clientService, times(2)).updateAvailableFunds(clientIdCaptor.capture(), availableFundsCaptor.capture());
+      verify(clientService, times(2)).setAvailableFunds(clientIdCaptor.capture(), availableFundsCaptor.capture());
       assertThat(clientIdCaptor.getAllValues()).containsOnly("client_1");
       assertThat(availableFundsCaptor.getAllValues()).contains(15345.0);
    }
 
+   @Test
+   public void failedJournal_leavesPositionsFundsAndMarketIndexUntouched() throws Exception {
+      StateJournal stateJournal = mock(StateJournal.class);
+      openPositionsService = new OpenPositionsService(clientService, marketDataCache, stateJournal, false, new SimpleMeterRegistry());
+      initialiseClientPositions();
+      String openPositionId = openPositionsService.getOpenPositionsForClient("client_1").get(0).getId();
+      doThrow(new IllegalStateException("Journal failed")).when(stateJournal).checkRecording();
+
+      try {
+         openPositionsService.addOpenPositionForClient("client_1", openPosition4);
+         fail("Opening a position should fail once the journal has failed");
+      } catch (IllegalStateException expected) {
+      }
+      try {
+         openPositionsService.addOpenPositionsForClient("client_1", singletonList(openPosition4));
+         fail("Opening positions should fail once the journal has failed");
+      } catch (IllegalStateException expected) {
+      }
+      try {
+         openPositionsService.closeOpenPosition("client_1", openPositionId);
+         fail("Closing a position should fail once the journal has failed");
+      } catch (IllegalStateException expected) {
+      }
+
+      assertThat(openPositionsService.getOpenPositionsForClient("client_1")).hasSize(2).extracting("id").contains(openPositionId);
+      verify(stateJournal, times(2)).positionOpened(eq("client_1"), any(OpenPosition.class));
+      verify(stateJournal, never()).positionClosed(anyString(), anyString());
+      verify(clientService, times(2)).setAvailableFunds(eq("client_1"), anyDouble());
+      verify(clientService, never()).applyProfitAndLossDelta(eq("client_1"), anyDouble());
+
+      // Still indexed against its market, so ticks keep reaching it
+      openPositionsService.updateMarketPrice("market_1", 200.00);
+      verify(clientService, times(1)).applyProfitAndLossDelta(eq("client_1"), anyDouble());
+   }
+
    @Test
    public void updateMarketPrice_shouldUpdateClientRunningProfitAndLossAndAvailableFunds() throws Exception {
       initialiseClientPositions();
@@ -222,10 +276,182 @@ public class OpenPositionsServiceTest {
       openPositionsService.updateMarketPrice("market_1", 200.00);
 
       ArgumentCaptor<String> clientIdCaptor = ArgumentCaptor.forClass(String.class);
-      ArgumentCaptor<Double> sumProfitAndLossCaptor = ArgumentCaptor.forClass(Double.class);
-      verify(clientService, times(2)).updateRunningProfitAndLoss(clientIdCaptor.capture(), sumProfitAndLossCaptor.capture());
+      ArgumentCaptor<Double> profitAndLossDeltaCaptor = ArgumentCaptor.forClass(Double.class);
+      verify(clientService, times(2)).applyProfitAndLossDelta(clientIdCaptor.capture(), profitAndLossDeltaCaptor.capture());
       assertThat(clientIdCaptor.getAllValues()).containsOnly("client_1", "client_3");
-      assertThat(sumProfitAndLossCaptor.getAllValues()).containsOnly(1200.0, 18950.0);
+      assertThat(profitAndLossDeltaCaptor.getAllValues()).containsOnly(1200.0, 18950.0);
+   }
+
+   @Test
+   public void updateMarketPrice_appliesOnlyThePriceMoveSinceTheLastUpdate() throws Exception {
+      initialiseClientPositions();
+
+      openPositionsService.updateMarketPrice("market_1", 200.00);
+      openPositionsService.updateMarketPrice("market_1", 150.00);
+
+      ArgumentCaptor<Double> profitAndLossDeltaCaptor = ArgumentCaptor.forClass(Double.class);
+      verify(clientService, times(2)).applyProfitAndLossDelta(eq("client_1"), profitAndLossDeltaCaptor.capture());
+      assertThat(profitAndLossDeltaCaptor.getAllValues()).containsExactly(1200.0, -600.0);
+   }
+
+   @Test
+   public void updateMarketPrice_onlyUpdatesClientsStillHoldingTheMarket() throws Exception {
+      initialiseClientPositions();
+      String client3PositionId = openPositionsService.getOpenPositionsForClient("client_3").get(0).getId();
+      openPositionsService.closeOpenPosition("client_3", client3PositionId);
+      // Closing applies client_3's profit and loss too, so only count what the tick does
+      reset(clientService);
+
+      openPositionsService.updateMarketPrice("market_1", 200.00);
+
+      verify(clientService, times(1)).applyProfitAndLossDelta(eq("client_1"), anyDouble());
+      verify(clientService, never()).applyProfitAndLossDelta(eq("client_3"), anyDouble());
+   }
+
+   @Test
+   public void updateMarketPrice_doesNothingForMarketWithNoOpenPositions() throws Exception {
+      initialiseClientPositions();
+
+      openPositionsService.updateMarketPrice("market_9", 200.00);
+
+      verify(clientService, never()).applyProfitAndLossDelta(anyString(), anyDouble());
+   }
+
+   @Test
+   public void addOpenPositionsForClient_opensValidPositionsAndRejectsInvalidOnesInRequestOrder() throws Exception {
+      when(clientService.getClientData("client_1")).thenReturn(createClient("client_1"));
+      mockMarketDataCacheCall(openPosition1);
+      mockMarketDataCacheCall(openPosition2);
+      when(marketDataCache.getCurrentPriceForMarket("market_9")).thenThrow(new NoMarketPriceAvailableException("no price"));
+      OpenPosition zeroSize = OpenPosition.builder().marketId("market_2").build();
+      OpenPosition noPrice = OpenPosition.builder().marketId("market_9").buySize(1).build();
+
+      List<OpenPositionResult> results = openPositionsService.addOpenPositionsForClient("client_1",
+            newArrayList(openPosition1, zeroSize, noPrice, openPosition2));
+
+      assertThat(results).extracting(OpenPositionResult::isOpened).containsExactly(true, false, false, true);
+      assertThat(results.get(1).getError()).contains("Buy size is ZERO");
+      assertThat(results.get(2).getError()).contains("market_9");
+      assertThat(results.get(0).getOpenPosition().getId()).isNotEqualTo(results.get(3).getOpenPosition().getId());
+      assertThat(openPositionsService.getOpenPositionsForClient("client_1"))
+            .containsExactly(results.get(0).getOpenPosition(), results.get(3).getOpenPosition());
+   }
+
+   @Test
+   public void addOpenPositionsForClient_updatesAvailableFundsOnceForWholeBatch() throws Exception {
+      when(clientService.getClientData("client_1")).thenReturn(createClient("client_1"));
+      mockMarketDataCacheCall(openPosition1);
+      mockMarketDataCacheCall(openPosition2);
+
+      openPositionsService.addOpenPositionsForClient("client_1", newArrayList(openPosition1, openPosition2));
+
+      verify(clientService, times(1)).getClientData("client_1");
+      verify(clientService, times(1)).setAvailableFunds("client_1", 12345 - 1200.0 - 140.0);
+   }
+
+   @Test
+   public void addOpenPositionsForClient_opensNothingIfClientCannotFundWholeBatch() throws Exception {
+      when(clientService.getClientData("client_1")).thenReturn(createClient("client_1"));
+      mockMarketDataCacheCall(openPosition1);
+      mockMarketDataCacheCall(openPosition5);
+
+      try {
+         openPositionsService.addOpenPositionsForClient("client_1", newArrayList(openPosition1, openPosition5));
+         fail("Expected InsufficientFundsException");
+      } catch (InsufficientFundsException e) {
+         assertThat(e.getMessage()).contains("client_1");
+      }
+
+      verify(clientService, never()).setAvailableFunds(anyString(), anyDouble());
+      openPositionsService.updateMarketPrice("market_1", 200.00);
+      verify(clientService, never()).applyProfitAndLossDelta(anyString(), anyDouble());
+   }
+
+   @Test
+   public void lazyRevaluation_repricesPositionsAndClientProfitAndLossWhenRead() throws Exception {
+      MarketDataCache realMarketDataCache = new MarketDataCache();
+      ClientService realClientService = new ClientService();
+      OpenPositionsService lazyOpenPositionsService = new OpenPositionsService(realClientService, realMarketDataCache, StateJournal.NO_OP, true, new SimpleMeterRegistry());
+      String clientId = realClientService.storeNewClient(Client.builder().userName("username").build()).getId();
+      lazyOpenPositionsService.addOpenPositionForClient(clientId, OpenPosition.builder().marketId("market_1").buySize(10).build());
+      double openingPrice = realMarketDataCache.getCurrentPrice(0);
+
+      realMarketDataCache.updateCurrentPrice(0, openingPrice + 2);
+      lazyOpenPositionsService.updateMarketPrice("market_1", openingPrice + 2);
+
+      assertThat(realClientService.getClientData(clientId).getRunningProfitAndLoss()).isEqualTo(20.0);
+      assertThat(lazyOpenPositionsService.getOpenPositionsForClient(clientId).get(0).getProfitAndLoss()).isEqualTo(20.0);
+
+      realMarketDataCache.updateCurrentPrice(0, openingPrice - 1);
+
+      assertThat(lazyOpenPositionsService.getOpenPositionsForClient(clientId).get(0).getProfitAndLoss()).isEqualTo(-10.0);
+      assertThat(realClientService.getClientData(clientId).getRunningProfitAndLoss()).isEqualTo(-10.0);
+   }
+
+   @Test
+   public void updateMarketPrice_countsRevaluedPositions() throws Exception {
+      MarketDataCache realMarketDataCache = new MarketDataCache();
+      ClientService realClientService = new ClientService();
+      SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+      OpenPositionsService meteredOpenPositionsService = new OpenPositionsService(realClientService, realMarketDataCache, StateJournal.NO_OP, false, meterRegistry);
+      String clientId = realClientService.storeNewClient(Client.builder().userName("username").build()).getId();
+      meteredOpenPositionsService.addOpenPositionForClient(clientId, OpenPosition.builder().marketId("market_1").buySize(1).build());
+      meteredOpenPositionsService.addOpenPositionForClient(clientId, OpenPosition.builder().marketId("market_1").buySize(2).build());
+      meteredOpenPositionsService.addOpenPositionForClient(clientId, OpenPosition.builder().marketId("market_2").buySize(3).build());
+
+      meteredOpenPositionsService.updateMarketPrice("market_1", 600.0);
+
+      assertThat(meterRegistry.get("positions.revalued").counter().count()).isEqualTo(2.0);
+   }
+
+   @Test
+   public void getOpenPositionsForClient_returnsCopyOfStoredPositions() throws Exception {
+      initialiseClientPositions();
+
+      openPositionsService.getOpenPositionsForClient("client_1").clear();
+
+      assertThat(openPositionsService.getOpenPositionsForClient("client_1")).hasSize(2);
+   }
+
+   @Test
+   public void concurrentOpensClosesAndTicks_leaveClientFundsConsistent() throws Exception {
+      ClientService realClientService = new ClientService();
+      openPositionsService = new OpenPositionsService(realClientService, marketDataCache, StateJournal.NO_OP, false, new SimpleMeterRegistry());
+      String clientId = realClientService.storeNewClient(Client.builder().userName("username").build()).getId();
+      mockMarketDataCacheCall(openPosition1);
+
+      int threads = 8;
+      int tradesPerThread = 200;
+      ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> results = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+         results.add(executor.submit(() -> {
+            start.await();
+            for (int trade = 0; trade < tradesPerThread; trade++) {
+               OpenPosition opened = openPositionsService.addOpenPositionForClient(clientId, openPosition1);
+               openPositionsService.closeOpenPosition(clientId, opened.getId());
+            }
+            return null;
+         }));
+      }
+      results.add(executor.submit(() -> {
+         start.await();
+         for (int tick = 0; tick < threads * tradesPerThread; tick++) {
+            openPositionsService.updateMarketPrice("market_1", openPosition1.getOpeningPrice());
+         }
+         return null;
+      }));
+
+      start.countDown();
+      for (Future<?> result : results) {
+         result.get();
+      }
+      executor.shutdown();
+
+      Client client = realClientService.getClientData(clientId);
+      assertThat(client.getAvailableFunds()).isEqualTo(INITIAL_FUNDS);
+      assertThat(client.getRunningProfitAndLoss()).isCloseTo(0.0, within(0.0));
    }
 
    private void initialiseOpenPositions() {
@@ -0,0 +1,167 @@
+package com.iggroup.universityworkshopmw.domain.services;
+
+import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
+import com.iggroup.universityworkshopmw.domain.caches.PriceHistoryCache;
+import com.iggroup.universityworkshopmw.domain.events.MarketDataUpdatedEvent;
+import com.iggroup.universityworkshopmw.domain.exceptions.NoAvailableDataException;
+import com.iggroup.universityworkshopmw.domain.model.Market;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toSet;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PriceGeneratorServiceTest {
+
+   private static final int SYNTHETIC_MARKETS = 90;
+
+   private MarketDataCache marketDataCache;
+   private ApplicationEventPublisher eventPublisher;
+   private TickPipeline tickPipeline;
+   private PriceHistoryCache priceHistoryCache;
+   private SimpleMeterRegistry meterRegistry;
+   private PriceGeneratorService priceGeneratorService;
+
+   @Before
+   public void setup() {
+      marketDataCache = new MarketDataCache(SYNTHETIC_MARKETS);
+      tickPipeline = mock(TickPipeline.class);
+      priceHistoryCache = new PriceHistoryCache(marketDataCache, 16, 16);
+      meterRegistry = new SimpleMeterRegistry();
+      MarketDataService marketDataService = new MarketDataService(tickPipeline, marketDataCache, priceHistoryCache);
+      PriceGenerator priceGenerator = mock(PriceGenerator.class);
+      when(priceGenerator.generateNewMarketPrice(anyDouble(), any(Random.class))).thenAnswer(invocation -> (double) invocation.getArguments()[0] + 1);
+      eventPublisher = mock(ApplicationEventPublisher.class);
+      priceGeneratorService = new PriceGeneratorService(marketDataService, priceGenerator, eventPublisher, 4, meterRegistry);
+   }
+
+   @After
+   public void tearDown() {
+      priceGeneratorService.shutdown();
+   }
+
+   @Test
+   public void updateMarketPrices_updatesEachMarketAtMostOnceAcrossPartitions() {
+      //Given
+      double[] initialPrices = currentPrices();
+
+      //When
+      priceGeneratorService.updateMarketPrices();
+
+      //Then
+      double[] updatedPrices = currentPrices();
+      IntStream.range(0, initialPrices.length)
+            .forEach(idx -> assertThat(updatedPrices[idx]).isIn(initialPrices[idx], initialPrices[idx] + 1));
+      assertThat(updatedPrices).isNotEqualTo(initialPrices);
+   }
+
+   @Test
+   public void updateMarketPrices_publishesOnlyUpdatedNamedMarkets() {
+      //Given
+      double[] initialPrices = currentPrices();
+
+      //When
+      priceGeneratorService.updateMarketPrices();
+
+      //Then
+      ArgumentCaptor<MarketDataUpdatedEvent> eventCaptor = ArgumentCaptor.forClass(MarketDataUpdatedEvent.class);
+      verify(eventPublisher).publishEvent(eventCaptor.capture());
+      long updatedNamedMarkets = IntStream.range(0, marketDataCache.size())
+            .filter(idx -> !marketDataCache.isSyntheticMarket(idx))
+            .filter(idx -> marketDataCache.getCurrentPrice(idx) != initialPrices[idx])
+            .count();
+      assertThat(eventCaptor.getValue().getUpdatedMarkets()).hasSize((int) updatedNamedMarkets);
+      eventCaptor.getValue().getUpdatedMarkets()
+            .forEach(market -> assertThat(market.getCurrentPrice()).isEqualTo(initialPrices[marketDataCache.indexOf(market.getId())] + 1));
+      assertThat(eventCaptor.getValue().getUpdatedMarkets()).extracting(Market::getMarketName).doesNotContainNull();
+   }
+
+   @Test
+   public void updateMarketPrices_publishesEveryUpdatedMarketToTickPipeline() {
+      //Given
+      double[] initialPrices = currentPrices();
+      Set<Integer> publishedMarketIndexes = new HashSet<>();
+      doAnswer(invocation -> {
+         int[] marketIndexes = (int[]) invocation.getArguments()[0];
+         IntStream.range(0, (int) invocation.getArguments()[1]).forEach(i -> publishedMarketIndexes.add(marketIndexes[i]));
+         return null;
+      }).when(tickPipeline).publish(any(int[].class), anyInt());
+
+      //When
+      priceGeneratorService.updateMarketPrices();
+
+      //Then
+      Set<Integer> updatedMarketIndexes = IntStream.range(0, marketDataCache.size())
+            .filter(idx -> marketDataCache.getCurrentPrice(idx) != initialPrices[idx])
+            .boxed()
+            .collect(toSet());
+      assertThat(publishedMarketIndexes).isEqualTo(updatedMarketIndexes);
+   }
+
+   @Test
+   public void updateMarketPrices_publishesOneSnapshotPerTickWithTheNewPrices() {
+      //Given
+      long initialVersion = marketDataCache.getSnapshot().getVersion();
+
+      //When
+      priceGeneratorService.updateMarketPrices();
+
+      //Then
+      assertThat(marketDataCache.getSnapshot().getVersion()).isEqualTo(initialVersion + 1);
+      marketDataCache.getSnapshot().getMarkets()
+            .forEach(market -> assertThat(market.getCurrentPrice()).isEqualTo(marketDataCache.getCurrentPrice(marketDataCache.indexOf(market.getId()))));
+   }
+
+   @Test
+   public void updateMarketPrices_recordsPriceHistoryForUpdatedNamedMarkets() throws Exception {
+      //Given
+      double[] initialPrices = currentPrices();
+
+      //When
+      priceGeneratorService.updateMarketPrices();
+
+      //Then
+      IntStream.range(0, marketDataCache.size())
+            .filter(idx -> !marketDataCache.isSyntheticMarket(idx))
+            .forEach(idx -> {
+               try {
+                  int expectedTicks = marketDataCache.getCurrentPrice(idx) != initialPrices[idx] ? 1 : 0;
+                  assertThat(priceHistoryCache.getTicks(marketDataCache.getMarketId(idx), 0, Long.MAX_VALUE)).hasSize(expectedTicks);
+               } catch (NoAvailableDataException e) {
+                  throw new IllegalStateException(e);
+               }
+            });
+   }
+
+   @Test
+   public void updateMarketPrices_recordsTickDuration() {
+      //When
+      priceGeneratorService.updateMarketPrices();
+      priceGeneratorService.updateMarketPrices();
+
+      //Then
+      assertThat(meterRegistry.get("price.generator.tick").timer().count()).isEqualTo(2);
+   }
+
+   private double[] currentPrices() {
+      return IntStream.range(0, marketDataCache.size())
+            .mapToDouble(marketDataCache::getCurrentPrice)
+            .toArray();
+   }
+}
@@ -0,0 +1,46 @@
+package com.iggroup.universityworkshopmw.domain.services;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RandomWalkPriceGeneratorTest {
+
+   private Random random;
+   private RandomWalkPriceGenerator priceGenerator;
+
+   @Before
+   public void setup() {
+      random = mock(Random.class);
+      priceGenerator = new RandomWalkPriceGenerator(40);
+   }
+
+   @Test
+   public void generateNewMarketPrice_movesPriceByScaledGaussianAndRoundsToTwoDecimalPlaces() {
+      //Given
+      when(random.nextGaussian()).thenReturn(0.123456);
+
+      //When
+      double newPrice = priceGenerator.generateNewMarketPrice(100, random);
+
+      //Then
+      assertThat(newPrice).isEqualTo(104.94);
+   }
+
+   @Test
+   public void generateNewMarketPrice_neverGoesBelowOne() {
+      //Given
+      when(random.nextGaussian()).thenReturn(-10.0);
+
+      //When
+      double newPrice = priceGenerator.generateNewMarketPrice(100, random);
+
+      //Then
+      assertThat(newPrice).isEqualTo(1);
+   }
+}
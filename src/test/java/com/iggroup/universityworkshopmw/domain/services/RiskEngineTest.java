@@ -0,0 +1,83 @@
+package com.iggroup.universityworkshopmw.domain.services;
+
+import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
+import com.iggroup.universityworkshopmw.domain.journal.StateJournal;
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class RiskEngineTest {
+
+   private MarketDataCache marketDataCache;
+   private ClientService clientService;
+   private OpenPositionsService openPositionsService;
+   private SimpleMeterRegistry meterRegistry;
+   private RiskEngine riskEngine;
+   private String clientId;
+
+   @Before
+   public void setUp() throws Exception {
+      marketDataCache = new MarketDataCache();
+      clientService = new ClientService();
+      openPositionsService = new OpenPositionsService(clientService, marketDataCache, StateJournal.NO_OP, false, new SimpleMeterRegistry());
+      meterRegistry = new SimpleMeterRegistry();
+      riskEngine = new RiskEngine(openPositionsService, 1.0, meterRegistry);
+      clientId = clientService.storeNewClient(Client.builder().userName("username").build()).getId();
+   }
+
+   @Test
+   public void processBreaches_closesPositionsOfClientWhoseFundsWentNegative() throws Exception {
+      openPosition("market_1", 49);
+      double openingPrice = marketDataCache.getCurrentPrice(0);
+
+      movePrice(0, openingPrice - 20);
+      assertThat(clientService.getClientData(clientId).getAvailableFunds()).isNegative();
+
+      riskEngine.processBreaches();
+
+      assertThat(openPositionsService.getOpenPositionSnapshot()).doesNotContainKey(clientId);
+      assertThat(clientService.getClientData(clientId).getAvailableFunds()).isCloseTo(25000 - 49 * 20.0, within(0.01));
+      assertThat(meterRegistry.get("positions.stopped.out").counter().count()).isEqualTo(1.0);
+   }
+
+   @Test
+   public void processBreaches_closesWorstPositionsOnlyUntilClientHasHeadroom() throws Exception {
+      openPosition("market_1", 40);
+      openPosition("market_2", 5);
+      openPosition("market_3", 2);
+
+      movePrice(0, marketDataCache.getCurrentPrice(0) - 70);
+      assertThat(clientService.getClientData(clientId).getAvailableFunds()).isNegative();
+      riskEngine.processBreaches();
+
+      List<OpenPosition> remainingPositions = openPositionsService.getOpenPositionsForClient(clientId);
+      assertThat(remainingPositions).extracting(OpenPosition::getMarketId).containsOnly("market_2", "market_3");
+      assertThat(clientService.getClientData(clientId).getAvailableFunds()).isPositive();
+   }
+
+   @Test
+   public void processBreaches_leavesClientsWithHeadroomAlone() throws Exception {
+      openPosition("market_1", 10);
+
+      movePrice(0, marketDataCache.getCurrentPrice(0) - 10);
+      riskEngine.processBreaches();
+
+      assertThat(openPositionsService.getOpenPositionsForClient(clientId)).hasSize(1);
+   }
+
+   private void openPosition(String marketId, int buySize) throws Exception {
+      openPositionsService.addOpenPositionForClient(clientId, OpenPosition.builder().marketId(marketId).buySize(buySize).build());
+   }
+
+   private void movePrice(int marketIndex, double price) {
+      marketDataCache.updateCurrentPrice(marketIndex, price);
+      openPositionsService.updateMarketPrice(marketDataCache.getMarketId(marketIndex), price);
+   }
+}
@@ -0,0 +1,187 @@
+package com.iggroup.universityworkshopmw.domain.services;
+
+import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
+import com.iggroup.universityworkshopmw.domain.journal.StateJournal;
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class TickPipelineTest {
+
+   private static final long TIMEOUT_MILLIS = 5000;
+
+   private MarketDataCache marketDataCache;
+   private ClientService clientService;
+   private OpenPositionsService openPositionsService;
+   private TickPipeline tickPipeline;
+   private String clientId;
+
+   @Before
+   public void setUp() throws Exception {
+      marketDataCache = new MarketDataCache();
+      clientService = new ClientService();
+      openPositionsService = new OpenPositionsService(clientService, marketDataCache, StateJournal.NO_OP, false, new SimpleMeterRegistry());
+      clientId = clientService.storeNewClient(Client.builder().userName("username").build()).getId();
+      openPositionsService.addOpenPositionForClient(clientId, OpenPosition.builder().marketId("market_1").buySize(10).build());
+   }
+
+   @After
+   public void tearDown() throws Exception {
+      tickPipeline.stop();
+   }
+
+   @Test
+   public void publish_revaluesPositionsAndAppliesProfitAndLossToClient() throws Exception {
+      tickPipeline = new TickPipeline(openPositionsService, marketDataCache, 16, true, new SimpleMeterRegistry());
+      tickPipeline.start();
+      double openingPrice = marketDataCache.getCurrentPrice(0);
+
+      marketDataCache.updateCurrentPrice(0, openingPrice + 5);
+      tickPipeline.publish(0);
+
+      awaitRunningProfitAndLoss(50.0);
+      assertThat(openPositionsService.getOpenPositionsForClient(clientId).get(0).getProfitAndLoss()).isEqualTo(50.0);
+   }
+
+   @Test
+   public void publish_keepsRunningProfitAndLossInStepWithPositions() throws Exception {
+      AtomicInteger marginUpdates = new AtomicInteger();
+      AtomicInteger outOfStepUpdates = new AtomicInteger();
+      openPositionsService.setMarginListener((marginClientId, availableFunds, usedMargin) -> {
+         marginUpdates.incrementAndGet();
+         if (Math.abs(runningProfitAndLoss() - positionsProfitAndLoss()) > 0.000001) {
+            outOfStepUpdates.incrementAndGet();
+         }
+      });
+      tickPipeline = new TickPipeline(openPositionsService, marketDataCache, 16, true, new SimpleMeterRegistry());
+      tickPipeline.start();
+      double openingPrice = marketDataCache.getCurrentPrice(0);
+
+      for (int tick = 1; tick <= 100; tick++) {
+         marketDataCache.updateCurrentPrice(0, openingPrice + tick);
+         tickPipeline.publish(0);
+      }
+
+      awaitRunningProfitAndLoss(1000.0);
+      assertThat(marginUpdates.get()).isNotZero();
+      assertThat(outOfStepUpdates.get()).isZero();
+      assertThat(positionsProfitAndLoss()).isCloseTo(1000.0, within(0.000001));
+   }
+
+   @Test
+   public void publish_appliesOnlyLatestPriceWhenMarketTicksRepeatedly() throws Exception {
+      tickPipeline = new TickPipeline(openPositionsService, marketDataCache, 16, true, new SimpleMeterRegistry());
+      double openingPrice = marketDataCache.getCurrentPrice(0);
+      for (int tick = 1; tick <= 5; tick++) {
+         marketDataCache.updateCurrentPrice(0, openingPrice + tick);
+         tickPipeline.publish(0);
+      }
+
+      tickPipeline.start();
+
+      awaitRunningProfitAndLoss(50.0);
+   }
+
+   @Test
+   public void publish_revaluesEveryMarketAfterTickRingOverflows() throws Exception {
+      tickPipeline = new TickPipeline(openPositionsService, marketDataCache, 2, false, new SimpleMeterRegistry());
+      double openingPrice = marketDataCache.getCurrentPrice(0);
+      marketDataCache.updateCurrentPrice(0, openingPrice - 3);
+      for (int marketIndex = 9; marketIndex > 0; marketIndex--) {
+         tickPipeline.publish(marketIndex);
+      }
+      tickPipeline.publish(0);
+
+      tickPipeline.start();
+
+      awaitRunningProfitAndLoss(-30.0);
+   }
+
+   @Test
+   public void publish_queuesEachMarketOnceWhileConflating() throws Exception {
+      tickPipeline = new TickPipeline(openPositionsService, marketDataCache, 16, true, new SimpleMeterRegistry());
+
+      for (int tick = 0; tick < 5; tick++) {
+         tickPipeline.publish(0);
+         tickPipeline.publish(1);
+      }
+
+      assertThat(tickPipeline.getPendingTickCount()).isEqualTo(2);
+   }
+
+   @Test
+   public void publish_queuesEveryTickWithoutConflation() throws Exception {
+      tickPipeline = new TickPipeline(openPositionsService, marketDataCache, 16, false, new SimpleMeterRegistry());
+
+      for (int tick = 0; tick < 5; tick++) {
+         tickPipeline.publish(0);
+         tickPipeline.publish(1);
+      }
+
+      assertThat(tickPipeline.getPendingTickCount()).isEqualTo(10);
+   }
+
+   @Test
+   public void publish_requeuesConflatedMarketOnceItHasBeenRevalued() throws Exception {
+      tickPipeline = new TickPipeline(openPositionsService, marketDataCache, 16, true, new SimpleMeterRegistry());
+      tickPipeline.start();
+      double openingPrice = marketDataCache.getCurrentPrice(0);
+      marketDataCache.updateCurrentPrice(0, openingPrice + 1);
+      tickPipeline.publish(0);
+      awaitRunningProfitAndLoss(10.0);
+
+      marketDataCache.updateCurrentPrice(0, openingPrice + 2);
+      tickPipeline.publish(0);
+
+      awaitRunningProfitAndLoss(20.0);
+   }
+
+   @Test
+   public void publish_ignoresTicksWhenPositionsAreRevaluedLazily() throws Exception {
+      openPositionsService = new OpenPositionsService(clientService, marketDataCache, StateJournal.NO_OP, true, new SimpleMeterRegistry());
+      tickPipeline = new TickPipeline(openPositionsService, marketDataCache, 16, true, new SimpleMeterRegistry());
+      tickPipeline.start();
+
+      tickPipeline.publish(0);
+      tickPipeline.publish(1);
+
+      assertThat(tickPipeline.getPendingTickCount()).isEqualTo(0);
+   }
+
+   private void awaitRunningProfitAndLoss(double expectedProfitAndLoss) throws Exception {
+      await(() -> runningProfitAndLoss() == expectedProfitAndLoss);
+      assertThat(runningProfitAndLoss()).isEqualTo(expectedProfitAndLoss);
+   }
+
+   private double runningProfitAndLoss() {
+      try {
+         return clientService.getClientData(clientId).getRunningProfitAndLoss();
+      } catch (Exception e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   private double positionsProfitAndLoss() {
+      try {
+         return openPositionsService.getOpenPositionsForClient(clientId).stream().mapToDouble(OpenPosition::getProfitAndLoss).sum();
+      } catch (Exception e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   private void await(BooleanSupplier condition) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+      while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+         Thread.sleep(10);
+      }
+   }
+}
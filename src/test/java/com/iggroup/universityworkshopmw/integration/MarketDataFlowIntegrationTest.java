@@ -2,10 +2,16 @@ package com.iggroup.universityworkshopmw.integration;
 
 import com.iggroup.universityworkshopmw.TestHelper;
 import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
+import com.iggroup.universityworkshopmw.domain.caches.PriceHistoryCache;
+import com.iggroup.universityworkshopmw.domain.journal.StateJournal;
 import com.iggroup.universityworkshopmw.domain.services.ClientService;
 import com.iggroup.universityworkshopmw.domain.services.MarketDataService;
 import com.iggroup.universityworkshopmw.domain.services.OpenPositionsService;
+import com.iggroup.universityworkshopmw.domain.services.TickPipeline;
+import com.iggroup.universityworkshopmw.integration.caches.MarketDataResponseCache;
 import com.iggroup.universityworkshopmw.integration.controllers.MarketDataController;
+import com.iggroup.universityworkshopmw.integration.streaming.MarketDataStreamer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Test;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
@@ -13,9 +19,11 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import static com.iggroup.universityworkshopmw.domain.enums.MarketName.SUGAR;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -24,9 +32,11 @@ public class MarketDataFlowIntegrationTest {
    //Given
    private ClientService clientService = spy(new ClientService());
    private MarketDataCache marketDataCache = spy(new MarketDataCache());
-   private OpenPositionsService openPositionsService = new OpenPositionsService(clientService, marketDataCache);
-   private MarketDataService marketDataService = new MarketDataService(openPositionsService, marketDataCache);
-   private MarketDataController marketDataController = new MarketDataController(marketDataService);
+   private OpenPositionsService openPositionsService = new OpenPositionsService(clientService, marketDataCache, StateJournal.NO_OP, false, new SimpleMeterRegistry());
+   private TickPipeline tickPipeline = new TickPipeline(openPositionsService, marketDataCache, 16, true, new SimpleMeterRegistry());
+   private MarketDataService marketDataService = new MarketDataService(tickPipeline, marketDataCache, new PriceHistoryCache(marketDataCache, 16, 16));
+   private MarketDataStreamer marketDataStreamer = mock(MarketDataStreamer.class);
+   private MarketDataController marketDataController = new MarketDataController(marketDataService, marketDataStreamer, new MarketDataResponseCache());
    private MockMvc mockMvc = MockMvcBuilders.standaloneSetup(marketDataController).build();
 
    @Test
@@ -41,4 +51,18 @@ public class MarketDataFlowIntegrationTest {
             .andExpect(jsonPath("$.[0].marketName", is(SUGAR.getName())))
             .andExpect(jsonPath("$.[0].currentPrice", is(148.0)));
    }
+
+   @Test
+   public void marketDataFlow_answersRepeatPollWithNotModified() throws Exception {
+      //Given
+      String etag = mockMvc.perform(get("/marketData/allMarkets"))
+            .andReturn().getResponse().getHeader("ETag");
+
+      //When
+      mockMvc.perform(get("/marketData/allMarkets").header("If-None-Match", etag))
+            //Then
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", etag))
+            .andExpect(content().string(""));
+   }
 }
@@ -2,12 +2,14 @@ package com.iggroup.universityworkshopmw.integration;
 
 import com.iggroup.universityworkshopmw.TestHelper;
 import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
+import com.iggroup.universityworkshopmw.domain.journal.StateJournal;
 import com.iggroup.universityworkshopmw.domain.model.Client;
 import com.iggroup.universityworkshopmw.domain.services.ClientService;
 import com.iggroup.universityworkshopmw.domain.services.OpenPositionsService;
 import com.iggroup.universityworkshopmw.integration.controllers.OpenPositionsController;
 import com.iggroup.universityworkshopmw.integration.dto.AddOpenPositionDto;
 import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.test.web.servlet.MockMvc;
@@ -34,7 +36,7 @@ public class OpenPositionFlowIntegrationTest {
 
    private ClientService clientService = spy(ClientService.class);
    private MarketDataCache marketDataCache = spy(MarketDataCache.class);
-   private OpenPositionsService openPositionsService = spy(new OpenPositionsService(clientService, marketDataCache));
+   private OpenPositionsService openPositionsService = spy(new OpenPositionsService(clientService, marketDataCache, StateJournal.NO_OP, false, new SimpleMeterRegistry()));
 
    @Before
    public void setup() {
@@ -64,7 +66,7 @@ public class OpenPositionFlowIntegrationTest {
       final Double openingPrice = openingPriceCaptor.getResult();
       String openPositionId = JsonPath.read(addOPResponse.getResponse().getContentAsString(), "$.openPositionId");
       verify(openPositionsService, times(1)).addOpenPositionForClient(clientId, transform(openPositionDto));
-      verify(clientService, times(1)).updateAvailableFunds(clientId, INITIAL_FUNDS - (buySize * openingPrice));
+      assertThat(clientService.getClientData(clientId).getAvailableFunds()).isEqualTo(INITIAL_FUNDS - (buySize * openingPrice));
 
 
       //Get open positions
@@ -97,7 +99,6 @@ public class OpenPositionFlowIntegrationTest {
 
       assertThat(Double.parseDouble(content)).isEqualTo(profitAndLoss);
       verify(openPositionsService, times(1)).closeOpenPosition(clientId, openPositionId);
-      verify(clientService, times(1)).updateAvailableFunds(clientId, updatedAvailableFunds);
 
       //Verify client funds
       Client clientData = clientService.getClientData(clientId);
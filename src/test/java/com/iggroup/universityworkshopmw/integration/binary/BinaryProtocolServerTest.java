@@ -0,0 +1,182 @@
+package com.iggroup.universityworkshopmw.integration.binary;
+
+import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
+import com.iggroup.universityworkshopmw.domain.journal.StateJournal;
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import com.iggroup.universityworkshopmw.domain.services.ClientService;
+import com.iggroup.universityworkshopmw.domain.services.OpenPositionsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+
+import static com.iggroup.universityworkshopmw.integration.binary.BinaryMessageCodec.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class BinaryProtocolServerTest {
+
+   private MarketDataCache marketDataCache;
+   private ClientService clientService;
+   private OpenPositionsService openPositionsService;
+   private BinaryProtocolServer server;
+   private SocketChannel channel;
+   private ByteBuffer request;
+   private ByteBuffer response;
+   private String clientId;
+
+   @Before
+   public void setUp() throws Exception {
+      marketDataCache = new MarketDataCache();
+      clientService = new ClientService();
+      openPositionsService = new OpenPositionsService(clientService, marketDataCache, StateJournal.NO_OP, false, new SimpleMeterRegistry());
+      server = new BinaryProtocolServer(new BinaryRequestHandler(openPositionsService, marketDataCache), 0, 4096);
+      server.start();
+      channel = SocketChannel.open(new InetSocketAddress("localhost", server.getPort()));
+      request = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+      response = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+      clientId = clientService.storeNewClient(Client.builder().userName("username").build()).getId();
+   }
+
+   @After
+   public void tearDown() throws Exception {
+      channel.close();
+      server.stop();
+   }
+
+   @Test
+   public void pipelinedRequests_areAnsweredInOrder() throws Exception {
+      encodeQuoteRequest(request, 1, 0);
+      encodeOpenPosition(request, 2, clientId, 1, 10);
+      encodeQuoteRequest(request, 3, marketDataCache.size());
+      send();
+
+      int frameOffset = readFrame(0);
+      assertThat(templateId(response, frameOffset)).isEqualTo(QUOTE);
+      assertThat(correlationId(response, frameOffset)).isEqualTo(1);
+      assertThat(response.getInt(bodyOffset(frameOffset))).isEqualTo(0);
+      assertThat(response.getDouble(bodyOffset(frameOffset) + Integer.BYTES)).isEqualTo(marketDataCache.getCurrentPrice(0));
+
+      frameOffset = readFrame(nextFrameOffset(frameOffset));
+      assertThat(templateId(response, frameOffset)).isEqualTo(POSITION_OPENED);
+      assertThat(correlationId(response, frameOffset)).isEqualTo(2);
+      String openPositionId = getAscii(response, bodyOffset(frameOffset));
+      assertThat(openPositionsService.getOpenPositionsForClient(clientId)).extracting("id").containsExactly(openPositionId);
+      assertThat(response.getDouble(bodyOffset(frameOffset) + asciiLength(response, bodyOffset(frameOffset))))
+            .isEqualTo(marketDataCache.getCurrentPrice(1));
+
+      frameOffset = readFrame(nextFrameOffset(frameOffset));
+      assertThat(templateId(response, frameOffset)).isEqualTo(REJECT);
+      assertThat(correlationId(response, frameOffset)).isEqualTo(3);
+      assertThat(response.getShort(bodyOffset(frameOffset))).isEqualTo(INVALID_REQUEST);
+   }
+
+   @Test
+   public void closePosition_returnsClosingProfitAndLoss() throws Exception {
+      encodeOpenPosition(request, 1, clientId, 0, 10);
+      send();
+      int frameOffset = readFrame(0);
+      String openPositionId = getAscii(response, bodyOffset(frameOffset));
+
+      encodeClosePosition(request, 2, clientId, openPositionId);
+      send();
+      frameOffset = readFrame(nextFrameOffset(frameOffset));
+
+      assertThat(templateId(response, frameOffset)).isEqualTo(POSITION_CLOSED);
+      assertThat(response.getDouble(bodyOffset(frameOffset))).isCloseTo(0.0, within(0.0001));
+      assertThat(openPositionsService.getOpenPositionSnapshot()).doesNotContainKey(clientId);
+   }
+
+   @Test
+   public void rejects_requestsTheServicesRefuse() throws Exception {
+      encodeClosePosition(request, 1, clientId, "unknown");
+      encodeOpenPosition(request, 2, clientId, 0, 1_000_000);
+      send();
+
+      int frameOffset = readFrame(0);
+      assertThat(templateId(response, frameOffset)).isEqualTo(REJECT);
+      assertThat(response.getShort(bodyOffset(frameOffset))).isEqualTo(NO_AVAILABLE_DATA);
+
+      frameOffset = readFrame(nextFrameOffset(frameOffset));
+      assertThat(templateId(response, frameOffset)).isEqualTo(REJECT);
+      assertThat(response.getShort(bodyOffset(frameOffset))).isEqualTo(INSUFFICIENT_FUNDS);
+   }
+
+   @Test
+   public void truncatedFrame_isRejectedWithoutReadingIntoTheNextFrame() throws Exception {
+      int frameOffset = beginFrame(request, OPEN_POSITION, 1);
+      putAscii(request, clientId);
+      request.putInt(0);
+      endFrame(request, frameOffset);
+      encodeQuoteRequest(request, 2, 0);
+      send();
+
+      frameOffset = readFrame(0);
+      assertThat(templateId(response, frameOffset)).isEqualTo(REJECT);
+      assertThat(correlationId(response, frameOffset)).isEqualTo(1);
+      assertThat(response.getShort(bodyOffset(frameOffset))).isEqualTo(MALFORMED_FRAME);
+
+      frameOffset = readFrame(nextFrameOffset(frameOffset));
+      assertThat(templateId(response, frameOffset)).isEqualTo(QUOTE);
+      assertThat(correlationId(response, frameOffset)).isEqualTo(2);
+      assertThat(openPositionsService.getOpenPositionSnapshot()).doesNotContainKey(clientId);
+   }
+
+   @Test
+   public void stringLongerThanFrame_isRejected() throws Exception {
+      encodeOpenPosition(request, 1, clientId, 0, 10);
+      int frameOffset = beginFrame(request, CLOSE_POSITION, 2);
+      putAscii(request, clientId);
+      request.put((byte) MAX_STRING_BYTES)
+            .put((byte) 'x');
+      endFrame(request, frameOffset);
+      encodeQuoteRequest(request, 3, 0);
+      send();
+
+      frameOffset = readFrame(nextFrameOffset(readFrame(0)));
+      assertThat(templateId(response, frameOffset)).isEqualTo(REJECT);
+      assertThat(correlationId(response, frameOffset)).isEqualTo(2);
+      assertThat(response.getShort(bodyOffset(frameOffset))).isEqualTo(MALFORMED_FRAME);
+
+      frameOffset = readFrame(nextFrameOffset(frameOffset));
+      assertThat(templateId(response, frameOffset)).isEqualTo(QUOTE);
+      assertThat(correlationId(response, frameOffset)).isEqualTo(3);
+      assertThat(openPositionsService.getOpenPositionsForClient(clientId)).hasSize(1);
+   }
+
+   @Test
+   public void invalidFrameLength_closesConnection() throws Exception {
+      request.putInt(Integer.MAX_VALUE);
+      send();
+
+      response.clear();
+      assertThat(channel.read(response)).isEqualTo(-1);
+   }
+
+   private void send() throws IOException {
+      request.flip();
+      while (request.hasRemaining()) {
+         channel.write(request);
+      }
+      request.clear();
+   }
+
+   // Reads until the whole frame at frameOffset has arrived
+   private int readFrame(int frameOffset) throws IOException {
+      while (response.position() < frameOffset + LENGTH_FIELD_BYTES
+            || response.position() < nextFrameOffset(frameOffset)) {
+         assertThat(channel.read(response)).isNotNegative();
+      }
+      return frameOffset;
+   }
+
+   private int nextFrameOffset(int frameOffset) {
+      return frameOffset + LENGTH_FIELD_BYTES + frameLength(response, frameOffset);
+   }
+}
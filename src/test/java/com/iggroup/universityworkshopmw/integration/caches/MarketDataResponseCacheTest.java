@@ -0,0 +1,50 @@
+package com.iggroup.universityworkshopmw.integration.caches;
+
+import com.iggroup.universityworkshopmw.domain.model.Market;
+import com.iggroup.universityworkshopmw.domain.model.MarketDataSnapshot;
+import com.iggroup.universityworkshopmw.integration.caches.MarketDataResponseCache.MarketDataResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.iggroup.universityworkshopmw.domain.enums.MarketName.GOLD;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MarketDataResponseCacheTest {
+
+   private MarketDataResponseCache marketDataResponseCache;
+
+   @Before
+   public void setUp() {
+      marketDataResponseCache = new MarketDataResponseCache();
+   }
+
+   @Test
+   public void getResponse_serialisesEachVersionOnce() throws Exception {
+      MarketDataSnapshot snapshot = createSnapshot(1, 400.0);
+
+      MarketDataResponse first = marketDataResponseCache.getResponse(snapshot);
+      MarketDataResponse second = marketDataResponseCache.getResponse(snapshot);
+
+      assertThat(second.getBody()).isSameAs(first.getBody());
+      assertThat(new String(first.getBody(), "UTF-8")).isEqualTo("[{\"id\":\"market_1\",\"marketName\":\"Gold\",\"currentPrice\":400.0}]");
+   }
+
+   @Test
+   public void getResponse_reserialisesAndChangesEtagForNewVersion() throws Exception {
+      MarketDataResponse first = marketDataResponseCache.getResponse(createSnapshot(1, 400.0));
+
+      MarketDataResponse second = marketDataResponseCache.getResponse(createSnapshot(2, 410.0));
+
+      assertThat(second.getEtag()).isNotEqualTo(first.getEtag());
+      assertThat(new String(second.getBody(), "UTF-8")).contains("410.0");
+   }
+
+   private MarketDataSnapshot createSnapshot(long version, double currentPrice) {
+      return new MarketDataSnapshot(version, singletonList(Market.builder()
+            .id("market_1")
+            .marketName(GOLD)
+            .currentPrice(currentPrice)
+            .build()));
+   }
+}
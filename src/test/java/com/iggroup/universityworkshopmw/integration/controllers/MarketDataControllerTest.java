@@ -1,17 +1,27 @@
 package com.iggroup.universityworkshopmw.integration.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iggroup.universityworkshopmw.domain.exceptions.NoAvailableDataException;
 import com.iggroup.universityworkshopmw.domain.model.Market;
+import com.iggroup.universityworkshopmw.domain.model.MarketDataSnapshot;
+import com.iggroup.universityworkshopmw.domain.model.PriceBar;
 import com.iggroup.universityworkshopmw.domain.services.MarketDataService;
-import com.iggroup.universityworkshopmw.integration.dto.MarketDto;
+import com.iggroup.universityworkshopmw.integration.caches.MarketDataResponseCache;
+import com.iggroup.universityworkshopmw.integration.dto.PriceBarDto;
+import com.iggroup.universityworkshopmw.integration.streaming.MarketDataStreamer;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import static com.iggroup.universityworkshopmw.domain.enums.BarResolution.ONE_MINUTE;
 import static com.iggroup.universityworkshopmw.domain.enums.MarketName.GOLD;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -19,12 +29,15 @@ import static org.mockito.Mockito.when;
 public class MarketDataControllerTest {
 
    private MarketDataService marketDataService;
+   private MarketDataStreamer marketDataStreamer;
    private MarketDataController marketDataController;
+   private ObjectMapper objectMapper = new ObjectMapper();
 
    @Before
    public void setup() {
       marketDataService = mock(MarketDataService.class);
-      marketDataController = new MarketDataController(marketDataService);
+      marketDataStreamer = mock(MarketDataStreamer.class);
+      marketDataController = new MarketDataController(marketDataService, marketDataStreamer, new MarketDataResponseCache());
    }
 
    @Test
@@ -36,28 +49,127 @@ public class MarketDataControllerTest {
             .marketName(GOLD)
             .currentPrice(400.0)
             .build());
-      when(marketDataService.getAllMarkets()).thenReturn(listOfMarkets);
+      when(marketDataService.getMarketDataSnapshot()).thenReturn(new MarketDataSnapshot(1, listOfMarkets));
 
       //When
-      final ResponseEntity<?> responseEntity = marketDataController.getAllMarketData();
+      final ResponseEntity<?> responseEntity = marketDataController.getAllMarketData(null);
 
       //Then
-      final List<MarketDto> marketDtos = (List<MarketDto>) responseEntity.getBody();
-      assertThat(marketDtos.get(0).getId()).isEqualTo("market_1");
-      assertThat(marketDtos.get(0).getMarketName()).isEqualTo(GOLD.getName());
-      assertThat(marketDtos.get(0).getCurrentPrice()).isEqualTo(400.0);
+      assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+      assertThat(responseEntity.getHeaders().getETag()).isNotNull();
+      final JsonNode marketDtos = readMarketDtos(responseEntity);
+      assertThat(marketDtos.get(0).get("id").asText()).isEqualTo("market_1");
+      assertThat(marketDtos.get(0).get("marketName").asText()).isEqualTo(GOLD.getName());
+      assertThat(marketDtos.get(0).get("currentPrice").asDouble()).isEqualTo(400.0);
    }
 
    @Test
    public void getAllMarketData_handlesAnyException() throws Exception {
       //Given
-      when(marketDataService.getAllMarkets()).thenThrow(new RuntimeException("Server exception!"));
+      when(marketDataService.getMarketDataSnapshot()).thenThrow(new RuntimeException("Server exception!"));
 
       //When
-      final ResponseEntity<?> responseEntity = marketDataController.getAllMarketData();
+      final ResponseEntity<?> responseEntity = marketDataController.getAllMarketData(null);
 
       assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
       assertThat(responseEntity.getBody()).isEqualTo("Something went wrong when retrieving all market data");
    }
 
-}
\ No newline at end of file
+   @Test
+   public void getAllMarketData_returnsNotModifiedWhenEtagMatchesCurrentVersion() throws Exception {
+      //Given
+      when(marketDataService.getMarketDataSnapshot()).thenReturn(new MarketDataSnapshot(3, createMarkets(400.0)));
+      String etag = marketDataController.getAllMarketData(null).getHeaders().getETag();
+
+      //When
+      final ResponseEntity<?> responseEntity = marketDataController.getAllMarketData(etag);
+
+      //Then
+      assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+      assertThat(responseEntity.getHeaders().getETag()).isEqualTo(etag);
+      assertThat(responseEntity.getBody()).isNull();
+   }
+
+   @Test
+   public void getAllMarketData_returnsNewBodyAndEtagOnceVersionChanges() throws Exception {
+      //Given
+      when(marketDataService.getMarketDataSnapshot()).thenReturn(new MarketDataSnapshot(3, createMarkets(400.0)));
+      String etag = marketDataController.getAllMarketData(null).getHeaders().getETag();
+      when(marketDataService.getMarketDataSnapshot()).thenReturn(new MarketDataSnapshot(4, createMarkets(410.0)));
+
+      //When
+      final ResponseEntity<?> responseEntity = marketDataController.getAllMarketData(etag);
+
+      //Then
+      assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+      assertThat(responseEntity.getHeaders().getETag()).isNotEqualTo(etag);
+      assertThat(readMarketDtos(responseEntity).get(0).get("currentPrice").asDouble()).isEqualTo(410.0);
+   }
+
+   @Test
+   public void streamMarketData_returnsEmitterSubscribedToMarketData() {
+      //Given
+      SseEmitter emitter = new SseEmitter();
+      when(marketDataStreamer.subscribe()).thenReturn(emitter);
+
+      //When
+      final SseEmitter result = marketDataController.streamMarketData();
+
+      //Then
+      assertThat(result).isSameAs(emitter);
+   }
+
+   @Test
+   public void getPriceBars_returnsOkCodeAndBarsForMarket() throws Exception {
+      //Given
+      PriceBar priceBar = PriceBar.builder().startTime(60_000).open(100.0).high(105.0).low(99.0).close(102.0).tickCount(7).build();
+      when(marketDataService.getPriceBars("market_1", ONE_MINUTE, 0, 120_000)).thenReturn(singletonList(priceBar));
+
+      //When
+      final ResponseEntity<?> responseEntity = marketDataController.getPriceBars("market_1", ONE_MINUTE, 0, 120_000);
+
+      //Then
+      assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+      final List<PriceBarDto> priceBarDtos = (List<PriceBarDto>) responseEntity.getBody();
+      assertThat(priceBarDtos).hasSize(1);
+      assertThat(priceBarDtos.get(0).getStartTime()).isEqualTo(60_000);
+      assertThat(priceBarDtos.get(0).getHigh()).isEqualTo(105.0);
+      assertThat(priceBarDtos.get(0).getTickCount()).isEqualTo(7);
+   }
+
+   @Test
+   public void getPriceTicks_returnsNotFoundForMarketWithoutHistory() throws Exception {
+      //Given
+      when(marketDataService.getPriceTicks("market_99", 0, Long.MAX_VALUE)).thenThrow(new NoAvailableDataException("No price history"));
+
+      //When
+      final ResponseEntity<?> responseEntity = marketDataController.getPriceTicks("market_99", 0, Long.MAX_VALUE);
+
+      //Then
+      assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+   }
+
+   @Test
+   public void getPriceTicks_returnsBadRequestWhenRangeIsReversed() throws Exception {
+      //When
+      final ResponseEntity<?> responseEntity = marketDataController.getPriceTicks("market_1", 2_000, 1_000);
+
+      //Then
+      assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+   }
+
+   private List<Market> createMarkets(double currentPrice) {
+      List<Market> listOfMarkets = new ArrayList<>();
+      listOfMarkets.add(Market.builder()
+            .id("market_1")
+            .marketName(GOLD)
+            .currentPrice(currentPrice)
+            .build());
+      return listOfMarkets;
+   }
+
+   private JsonNode readMarketDtos(ResponseEntity<?> responseEntity) throws Exception {
+      return objectMapper.readTree((byte[]) responseEntity.getBody());
+   }
+
+}
@@ -1,9 +1,14 @@
 package com.iggroup.universityworkshopmw.integration.controllers;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iggroup.universityworkshopmw.domain.exceptions.InsufficientFundsException;
 import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import com.iggroup.universityworkshopmw.domain.model.OpenPositionResult;
 import com.iggroup.universityworkshopmw.domain.services.OpenPositionsService;
 import com.iggroup.universityworkshopmw.integration.dto.AddOpenPositionDto;
 import com.iggroup.universityworkshopmw.integration.dto.OpenPositionDto;
+import com.iggroup.universityworkshopmw.integration.dto.OpenPositionResultDto;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -17,6 +22,7 @@ import static com.iggroup.universityworkshopmw.integration.transformers.OpenPosi
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentCaptor.forClass;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyListOf;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -42,7 +48,8 @@ public class OpenPositionsControllerTest {
       when(openPositionsService.getOpenPositionsForClient(clientId1)).thenReturn(openPositions);
 
       final ResponseEntity<?> responseEntity = openPositionsController.getOpenPositions(clientId1);
-      List<OpenPositionDto> openPositionDtos = (List<OpenPositionDto>) responseEntity.getBody();
+      List<OpenPositionDto> openPositionDtos = new ObjectMapper().readValue((byte[]) responseEntity.getBody(), new TypeReference<List<OpenPositionDto>>() {
+      });
 
 
       assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
@@ -81,6 +88,36 @@ public class OpenPositionsControllerTest {
       assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
    }
 
+   @Test
+   public void createsABatchOfOpenPositions() throws Exception {
+      final String clientId = "client_12345";
+      when(openPositionsService.addOpenPositionsForClient(eq(clientId), anyListOf(OpenPosition.class)))
+            .thenReturn(newArrayList(
+                  OpenPositionResult.builder().marketId("market_1").buySize(50).openPosition(createOpenPosition()).build(),
+                  OpenPositionResult.builder().marketId("market_1").error("Buy size is ZERO").build()));
+
+      final ResponseEntity<?> responseEntity = openPositionsController.addOpenPositions(clientId,
+            newArrayList(createAddOpenPositionDto(), AddOpenPositionDto.builder().marketId("market_1").build()));
+      List<OpenPositionResultDto> results = (List<OpenPositionResultDto>) responseEntity.getBody();
+
+      assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+      assertThat(results.get(0).getOpenPositionId()).isEqualTo("open_position_id");
+      assertThat(results.get(0).getError()).isNull();
+      assertThat(results.get(1).getOpenPositionId()).isNull();
+      assertThat(results.get(1).getError()).isEqualTo("Buy size is ZERO");
+   }
+
+   @Test
+   public void rejectsBatchOfOpenPositionsWhenClientLacksFunds() throws Exception {
+      final String clientId = "client_12345";
+      when(openPositionsService.addOpenPositionsForClient(eq(clientId), anyListOf(OpenPosition.class)))
+            .thenThrow(new InsufficientFundsException("lacks funds"));
+
+      final ResponseEntity<?> responseEntity = openPositionsController.addOpenPositions(clientId, newArrayList(createAddOpenPositionDto()));
+
+      assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+   }
+
    @Test
    public void removesAnOpenPosition() throws Exception {
       final String clientId = "client_12345";
@@ -0,0 +1,86 @@
+package com.iggroup.universityworkshopmw.integration.streaming;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import com.iggroup.universityworkshopmw.domain.services.ClientService;
+import com.iggroup.universityworkshopmw.integration.dto.ClientDto;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+public class ClientExporterTest {
+
+   private final ObjectMapper objectMapper = new ObjectMapper();
+   private ClientService clientService;
+   private ClientExporter clientExporter;
+   private List<String> clientIds;
+
+   @Before
+   public void setUp() throws Exception {
+      clientService = spy(new ClientService());
+      clientExporter = new ClientExporter(clientService, 2);
+      clientIds = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+         clientIds.add(clientService.storeNewClient(Client.builder().userName("userName" + i).build()).getId());
+      }
+      clientIds.sort(null);
+   }
+
+   @Test
+   public void export_writesEveryClientAsOneLineAcrossPages() throws Exception {
+      List<ClientDto> exported = export(null, Integer.MAX_VALUE);
+
+      assertThat(exported).extracting(ClientDto::getId).containsExactlyElementsOf(clientIds);
+      assertThat(exported.get(0).getAvailableFunds()).isEqualTo(ClientService.INITIAL_FUNDS);
+   }
+
+   @Test
+   public void export_carriesOnAfterCursorUpToLimit() throws Exception {
+      List<ClientDto> exported = export(clientIds.get(0), 3);
+
+      assertThat(exported).extracting(ClientDto::getId).containsExactlyElementsOf(clientIds.subList(1, 4));
+   }
+
+   @Test
+   public void export_writesNothingAfterLastClient() throws Exception {
+      assertThat(export(clientIds.get(4), Integer.MAX_VALUE)).isEmpty();
+   }
+
+   @Test
+   public void export_leavesOutClientsStoredPartWayThrough() throws Exception {
+      doAnswer(invocation -> {
+         clientService.storeNewClient(Client.builder().userName("lateUserName").build());
+         return invocation.callRealMethod();
+      }).doCallRealMethod().when(clientService).getClientPage(anyString(), anyString(), anyInt());
+
+      List<ClientDto> exported = export(null, Integer.MAX_VALUE);
+
+      assertThat(exported).extracting(ClientDto::getId).containsExactlyElementsOf(clientIds);
+      assertThat(clientService.getLastClientId().compareTo(clientIds.get(4))).isPositive();
+   }
+
+   private List<ClientDto> export(String afterClientId, int limit) throws Exception {
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      clientExporter.export(afterClientId, limit).writeTo(outputStream);
+
+      String body = new String(outputStream.toByteArray(), UTF_8);
+      List<ClientDto> clients = new ArrayList<>();
+      for (String line : body.split("\n")) {
+         if (!line.isEmpty()) {
+            clients.add(objectMapper.readValue(line, ClientDto.class));
+         }
+      }
+      assertThat(body).endsWith(clients.isEmpty() ? "" : "\n");
+      return clients;
+   }
+}
@@ -0,0 +1,173 @@
+package com.iggroup.universityworkshopmw.integration.streaming;
+
+import com.iggroup.universityworkshopmw.domain.enums.MarketName;
+import com.iggroup.universityworkshopmw.domain.events.MarketDataUpdatedEvent;
+import com.iggroup.universityworkshopmw.domain.model.Market;
+import com.iggroup.universityworkshopmw.domain.services.MarketDataService;
+import com.iggroup.universityworkshopmw.integration.dto.MarketDto;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.iggroup.universityworkshopmw.domain.enums.MarketName.GOLD;
+import static com.iggroup.universityworkshopmw.domain.enums.MarketName.SILVER;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MarketDataStreamerTest {
+
+   private static final Market GOLD_MARKET = createMarket("market_1", GOLD, 500.9);
+   private static final Market SILVER_MARKET = createMarket("market_2", SILVER, 375.2);
+
+   private MarketDataService marketDataService;
+   private QueuedExecutorService sendExecutor;
+   private MarketDataStreamer marketDataStreamer;
+
+   @Before
+   public void setup() {
+      marketDataService = mock(MarketDataService.class);
+      when(marketDataService.getAllMarkets()).thenReturn(asList(GOLD_MARKET, SILVER_MARKET));
+      sendExecutor = new QueuedExecutorService();
+      marketDataStreamer = new MarketDataStreamer(marketDataService, sendExecutor, 1000);
+   }
+
+   @Test
+   public void subscribe_sendsAllMarketsFirst() {
+      //Given
+      CapturingSseEmitter emitter = new CapturingSseEmitter();
+
+      //When
+      marketDataStreamer.subscribe(emitter);
+      sendExecutor.runQueuedTasks();
+
+      //Then
+      assertThat(emitter.sentUpdates).hasSize(1);
+      assertThat(emitter.sentUpdates.get(0)).extracting(MarketDto::getId).containsExactly("market_1", "market_2");
+   }
+
+   @Test
+   public void onMarketDataUpdated_sendsOnlyChangedMarkets() {
+      //Given
+      CapturingSseEmitter emitter = new CapturingSseEmitter();
+      marketDataStreamer.subscribe(emitter);
+      sendExecutor.runQueuedTasks();
+
+      //When
+      marketDataStreamer.onMarketDataUpdated(new MarketDataUpdatedEvent(singletonList(createMarket("market_2", SILVER, 380.0))));
+      sendExecutor.runQueuedTasks();
+
+      //Then
+      assertThat(emitter.sentUpdates).hasSize(2);
+      assertThat(emitter.sentUpdates.get(1)).extracting(MarketDto::getId).containsExactly("market_2");
+      assertThat(emitter.sentUpdates.get(1)).extracting(MarketDto::getCurrentPrice).containsExactly(380.0);
+   }
+
+   @Test
+   public void onMarketDataUpdated_coalescesUpdatesNotYetSentToSubscriber() {
+      //Given
+      CapturingSseEmitter emitter = new CapturingSseEmitter();
+      marketDataStreamer.subscribe(emitter);
+      sendExecutor.runQueuedTasks();
+
+      //When
+      marketDataStreamer.onMarketDataUpdated(new MarketDataUpdatedEvent(singletonList(createMarket("market_1", GOLD, 501.0))));
+      marketDataStreamer.onMarketDataUpdated(new MarketDataUpdatedEvent(singletonList(createMarket("market_1", GOLD, 502.0))));
+      marketDataStreamer.onMarketDataUpdated(new MarketDataUpdatedEvent(singletonList(createMarket("market_2", SILVER, 376.0))));
+      sendExecutor.runQueuedTasks();
+
+      //Then
+      assertThat(emitter.sentUpdates).hasSize(2);
+      assertThat(emitter.sentUpdates.get(1)).extracting(MarketDto::getId).containsExactly("market_1", "market_2");
+      assertThat(emitter.sentUpdates.get(1)).extracting(MarketDto::getCurrentPrice).containsExactly(502.0, 376.0);
+   }
+
+   @Test
+   public void failedSend_removesSubscriber() {
+      //Given
+      CapturingSseEmitter emitter = new CapturingSseEmitter();
+      emitter.failSends = true;
+
+      //When
+      marketDataStreamer.subscribe(emitter);
+      sendExecutor.runQueuedTasks();
+
+      //Then
+      assertThat(marketDataStreamer.getSubscriberCount()).isEqualTo(0);
+   }
+
+   private static Market createMarket(String id, MarketName marketName, double currentPrice) {
+      return Market.builder()
+            .id(id)
+            .marketName(marketName)
+            .currentPrice(currentPrice)
+            .build();
+   }
+
+   private static class CapturingSseEmitter extends SseEmitter {
+      private final List<List<MarketDto>> sentUpdates = new ArrayList<>();
+      private boolean failSends;
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public void send(SseEventBuilder builder) throws IOException {
+         if (failSends) {
+            throw new HttpMessageNotWritableException("Client disconnected");
+         }
+         for (DataWithMediaType dataWithMediaType : builder.build()) {
+            if (dataWithMediaType.getData() instanceof List) {
+               sentUpdates.add((List<MarketDto>) dataWithMediaType.getData());
+            }
+         }
+      }
+   }
+
+   private static class QueuedExecutorService extends AbstractExecutorService {
+      private final List<Runnable> queuedTasks = new ArrayList<>();
+
+      void runQueuedTasks() {
+         while (!queuedTasks.isEmpty()) {
+            queuedTasks.remove(0).run();
+         }
+      }
+
+      @Override
+      public void execute(Runnable command) {
+         queuedTasks.add(command);
+      }
+
+      @Override
+      public void shutdown() {
+      }
+
+      @Override
+      public List<Runnable> shutdownNow() {
+         return queuedTasks;
+      }
+
+      @Override
+      public boolean isShutdown() {
+         return false;
+      }
+
+      @Override
+      public boolean isTerminated() {
+         return false;
+      }
+
+      @Override
+      public boolean awaitTermination(long timeout, TimeUnit unit) {
+         return true;
+      }
+   }
+}
@@ -0,0 +1,55 @@
+package com.iggroup.universityworkshopmw.integration.transformers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import com.iggroup.universityworkshopmw.domain.model.Market;
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static com.iggroup.universityworkshopmw.domain.enums.MarketName.GOLD;
+import static com.iggroup.universityworkshopmw.domain.enums.MarketName.SILVER;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DomainJsonWriterTest {
+
+   private final ObjectMapper objectMapper = new ObjectMapper();
+
+   @Test
+   public void writeMarkets_matchesMarketDtoSerialisation() throws Exception {
+      List<Market> markets = asList(
+            Market.builder().id("market_1").marketName(GOLD).currentPrice(400.0).build(),
+            Market.builder().id("market_2").marketName(SILVER).currentPrice(0.1 + 0.2).build());
+
+      assertThat(DomainJsonWriter.writeMarkets(markets))
+            .isEqualTo(objectMapper.writeValueAsBytes(MarketDataTransformer.transform(markets)));
+   }
+
+   @Test
+   public void writeOpenPositions_matchesOpenPositionDtoSerialisation() throws Exception {
+      List<OpenPosition> openPositions = asList(
+            OpenPosition.builder().id("opid_1").marketId("market_1").profitAndLoss(-12.5).openingPrice(400.0).buySize(10).build(),
+            OpenPosition.builder().id("opid_2").marketId("market_2").profitAndLoss(1e-7).openingPrice(1e9).buySize(1).build());
+
+      assertThat(DomainJsonWriter.writeOpenPositions(openPositions))
+            .isEqualTo(objectMapper.writeValueAsBytes(OpenPositionDtoTransformer.transform(openPositions)));
+      assertThat(new String(DomainJsonWriter.writeOpenPositions(emptyList()), "UTF-8")).isEqualTo("[]");
+   }
+
+   @Test
+   public void writeClient_matchesClientDtoSerialisation() throws Exception {
+      Client client = Client.builder().id("client_1").userName("user \"quoted\"").availableFunds(24000.25).runningProfitAndLoss(-999.75).build();
+
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      try (JsonGenerator generator = DomainJsonWriter.createGenerator(outputStream)) {
+         DomainJsonWriter.writeClient(generator, client);
+      }
+
+      assertThat(outputStream.toByteArray()).isEqualTo(objectMapper.writeValueAsBytes(ClientDtoTransformer.transform(client)));
+   }
+}
@@ -0,0 +1,40 @@
+package com.iggroup.universityworkshopmw.integration.transformers;
+
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import com.iggroup.universityworkshopmw.domain.model.OpenPositionResult;
+import com.iggroup.universityworkshopmw.integration.dto.OpenPositionResultDto;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.iggroup.universityworkshopmw.integration.transformers.OpenPositionResultDtoTransformer.transform;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OpenPositionResultDtoTransformerTest {
+
+   @Test
+   public void shouldTransformOpenedAndRejectedResults() {
+      OpenPosition openPosition = OpenPosition.builder()
+            .id("opid_1")
+            .marketId("market_1")
+            .openingPrice(150.0)
+            .buySize(10)
+            .build();
+      OpenPositionResult opened = OpenPositionResult.builder()
+            .marketId("market_1")
+            .buySize(10)
+            .openPosition(openPosition)
+            .build();
+      OpenPositionResult rejected = OpenPositionResult.builder()
+            .marketId("market_9")
+            .buySize(5)
+            .error("No available price for marketId=market_9")
+            .build();
+
+      List<OpenPositionResultDto> results = transform(newArrayList(opened, rejected));
+
+      assertThat(results.get(0)).isEqualTo(new OpenPositionResultDto("market_1", 10, "opid_1", 150.0, null));
+      assertThat(results.get(1)).isEqualTo(new OpenPositionResultDto("market_9", 5, null, null, "No available price for marketId=market_9"));
+   }
+}
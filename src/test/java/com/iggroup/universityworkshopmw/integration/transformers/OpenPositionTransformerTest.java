@@ -21,6 +21,13 @@ public class OpenPositionTransformerTest {
       assertThat(openPosition.getBuySize()).isEqualTo(10);
    }
 
+   @Test
+   public void shouldTransformMissingBuySizeToZero() {
+      OpenPosition openPosition = transform(AddOpenPositionDto.builder().marketId("market_id").build());
+
+      assertThat(openPosition.getBuySize()).isEqualTo(0);
+   }
+
    private AddOpenPositionDto createOpenPositionDto() {
       return AddOpenPositionDto.builder()
             .marketId("market_id")
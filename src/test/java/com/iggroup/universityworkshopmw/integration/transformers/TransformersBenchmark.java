@@ -0,0 +1,90 @@
+package com.iggroup.universityworkshopmw.integration.transformers;
+
+import com.iggroup.universityworkshopmw.domain.caches.MarketDataCache;
+import com.iggroup.universityworkshopmw.domain.model.Client;
+import com.iggroup.universityworkshopmw.domain.model.Market;
+import com.iggroup.universityworkshopmw.domain.model.OpenPosition;
+import com.iggroup.universityworkshopmw.integration.dto.ClientDto;
+import com.iggroup.universityworkshopmw.integration.dto.MarketDto;
+import com.iggroup.universityworkshopmw.integration.dto.OpenPositionDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformersBenchmark {
+
+   private static final int POSITIONS = 100;
+   private static final int CLIENTS = 1000;
+
+   private List<Market> markets;
+   private List<OpenPosition> openPositions;
+   private List<Client> clients;
+
+   @Setup
+   public void setup() {
+      markets = new MarketDataCache().getSnapshot().getMarkets();
+
+      openPositions = new ArrayList<>();
+      for (int position = 0; position < POSITIONS; position++) {
+         openPositions.add(OpenPosition.builder()
+               .id("opid_" + position)
+               .marketId("market_" + (position % 10 + 1))
+               .profitAndLoss(position)
+               .openingPrice(100)
+               .buySize(10)
+               .build());
+      }
+
+      clients = new ArrayList<>();
+      for (int client = 0; client < CLIENTS; client++) {
+         clients.add(Client.builder()
+               .id("client_" + client)
+               .userName("user_" + client)
+               .availableFunds(25000)
+               .build());
+      }
+   }
+
+   @Benchmark
+   public List<MarketDto> transformMarkets() {
+      return MarketDataTransformer.transform(markets);
+   }
+
+   @Benchmark
+   public byte[] writeMarkets() throws IOException {
+      return DomainJsonWriter.writeMarkets(markets);
+   }
+
+   @Benchmark
+   public List<OpenPositionDto> transformOpenPositions() {
+      return OpenPositionDtoTransformer.transform(openPositions);
+   }
+
+   @Benchmark
+   public byte[] writeOpenPositions() throws IOException {
+      return DomainJsonWriter.writeOpenPositions(openPositions);
+   }
+
+   @Benchmark
+   public List<ClientDto> transformClients() {
+      return ClientDtoTransformer.transform(clients);
+   }
+}